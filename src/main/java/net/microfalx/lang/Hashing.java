@@ -1,18 +1,38 @@
 package net.microfalx.lang;
 
+import com.google.common.hash.HashCode;
 import com.google.common.hash.Hasher;
 
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.zone.ZoneRules;
 import java.time.temporal.Temporal;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import static net.microfalx.lang.ArgumentUtils.requireBounded;
+import static net.microfalx.lang.ArgumentUtils.requireNonNull;
 import static net.microfalx.lang.ExceptionUtils.rethrowException;
 
 /**
@@ -21,7 +41,27 @@ import static net.microfalx.lang.ExceptionUtils.rethrowException;
 @SuppressWarnings("UnstableApiUsage")
 public final class Hashing {
 
-    private final Hasher hasher = com.google.common.hash.Hashing.murmur3_128().newHasher();
+    /**
+     * The default size of the chunks hashed in parallel by {@link #updateFileTree(Path)}.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int MIN_CHUNK_SIZE = 4 * 1024;
+    private static final int CHAR_BUFFER_SIZE = IOUtils.BUFFER_SIZE / 4;
+    private static final int MAX_DEPTH = 64;
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+    private static final ZoneRules SYSTEM_ZONE_RULES = ZoneId.systemDefault().getRules();
+
+    private static final ClassValue<Updater> UPDATERS = new ClassValue<>() {
+        @Override
+        protected Updater computeValue(Class<?> type) {
+            return createUpdater(type);
+        }
+    };
+
+    private final Algorithm algorithm;
+    private final Hasher hasher;
+    private int depth;
 
     /**
      * An empty hash
@@ -34,7 +74,20 @@ public final class Hashing {
      * @return a non-null instance
      */
     public static Hashing create() {
-        return new Hashing();
+        return new Hashing(Algorithm.MURMUR3_128);
+    }
+
+    /**
+     * Creates a new instance with a given hashing algorithm.
+     * <p>
+     * Values are turned into bytes the same way for all algorithms, only the hash function changes.
+     *
+     * @param algorithm the algorithm
+     * @return a non-null instance
+     */
+    public static Hashing create(Algorithm algorithm) {
+        requireNonNull(algorithm);
+        return new Hashing(algorithm);
     }
 
     /**
@@ -47,34 +100,204 @@ public final class Hashing {
         return create().update(value).asString();
     }
 
-    private Hashing() {
+    private Hashing(Algorithm algorithm) {
+        this.algorithm = algorithm;
+        this.hasher = HashingAlgorithms.newHasher(algorithm);
+    }
+
+    /**
+     * Returns the algorithm used to calculate the hash.
+     *
+     * @return a non-null instance
+     */
+    public Algorithm getAlgorithm() {
+        return algorithm;
     }
 
     /**
      * Updates the hash with an object.
+     * <p>
+     * Besides primitives, strings, temporals, collections, arrays and streams, any other object is hashed
+     * by its fields (see {@link net.microfalx.lang.annotation.Ignore} to skip a field). Files and paths are hashed by
+     * their path, use {@link #updateFile(Path)} to hash the content.
+     * <p>
+     * The way a value is hashed is resolved once per class, so the cost does not depend on the type of the value.
      *
      * @param value the value
      * @return self
      */
     public Hashing update(Object value) {
+        if (value == null) {
+            hasher.putLong(0);
+        } else {
+            UPDATERS.get(value.getClass()).update(this, value);
+        }
+        return this;
+    }
+
+    /**
+     * Updates the hash with a text, encoded as UTF-8.
+     *
+     * @param value the value
+     * @return self
+     */
+    public Hashing update(CharSequence value) {
         if (value == null) {
             hasher.putLong(0);
         } else if (value instanceof String) {
-            hasher.putString((String) value, StandardCharsets.UTF_8);
-        } else if (value instanceof Number) {
-            updateNumber((Number) value);
-        } else if (value instanceof Boolean) {
-            hasher.putBoolean((Boolean) value);
-        } else if (value instanceof byte[]) {
-            hasher.putBytes((byte[]) value);
-        } else if (value instanceof char[]) {
-            hasher.putString(String.valueOf((char[]) value), StandardCharsets.UTF_8);
-        } else if (value instanceof Enum) {
-            hasher.putString(((Enum<?>) value).name(), StandardCharsets.UTF_8);
-        } else if (value instanceof Temporal) {
-            updateTemporal((Temporal) value);
+            hasher.putString(value, StandardCharsets.UTF_8);
         } else {
-            updateOther(value);
+            updateChars(CharBuffer.wrap(value));
+        }
+        return this;
+    }
+
+    /**
+     * Updates the hash with an integer, the same as an {@link Integer} (or a {@link Short}, a {@link Byte}).
+     *
+     * @param value the value
+     * @return self
+     */
+    public Hashing update(int value) {
+        hasher.putInt(value);
+        return this;
+    }
+
+    /**
+     * Updates the hash with a long, the same as a {@link Long}.
+     *
+     * @param value the value
+     * @return self
+     */
+    public Hashing update(long value) {
+        hasher.putLong(value);
+        return this;
+    }
+
+    /**
+     * Updates the hash with a float, the same as a {@link Float}.
+     *
+     * @param value the value
+     * @return self
+     */
+    public Hashing update(float value) {
+        hasher.putFloat(value);
+        return this;
+    }
+
+    /**
+     * Updates the hash with a double, the same as a {@link Double}.
+     *
+     * @param value the value
+     * @return self
+     */
+    public Hashing update(double value) {
+        hasher.putDouble(value);
+        return this;
+    }
+
+    /**
+     * Updates the hash with a boolean, the same as a {@link Boolean}.
+     *
+     * @param value the value
+     * @return self
+     */
+    public Hashing update(boolean value) {
+        hasher.putBoolean(value);
+        return this;
+    }
+
+    /**
+     * Updates the hash with a character, the same as a {@link Character}.
+     *
+     * @param value the value
+     * @return self
+     */
+    public Hashing update(char value) {
+        hasher.putChar(value);
+        return this;
+    }
+
+    /**
+     * Updates the hash with the content of a file.
+     * <p>
+     * The file is read through a channel, in a direct buffer reused by the current thread, and the hash
+     * is updated only with the bytes read. The hash is the same as the hash of the content as a <code>byte[]</code>.
+     *
+     * @param file the file
+     * @return self
+     */
+    public Hashing updateFile(File file) {
+        requireNonNull(file);
+        return updateFile(file.toPath());
+    }
+
+    /**
+     * Updates the hash with the content of a file.
+     *
+     * @param path the path of the file
+     * @return self
+     * @see #updateFile(File)
+     */
+    public Hashing updateFile(Path path) {
+        requireNonNull(path);
+        ByteBuffer buffer = BUFFERS.get().getDirectBuffer();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                hasher.putBytes(buffer);
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            rethrowException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Updates the hash with a tree hash of the content of a file, calculated in parallel in the common pool.
+     *
+     * @param path the path of the file
+     * @return self
+     * @see #updateFileTree(Path, int, ForkJoinPool)
+     */
+    public Hashing updateFileTree(Path path) {
+        return updateFileTree(path, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Updates the hash with a tree hash of the content of a file, calculated in parallel.
+     * <p>
+     * The file is split in chunks of a fixed size, the chunks are hashed in parallel (with the algorithm of this
+     * instance) and the hash is updated
+     * with the size of the file, the size of the chunks and the hashes of all the chunks, in order. The result
+     * is deterministic for a given chunk size, but it is not the same as the hash calculated by
+     * {@link #updateFile(Path)} (or with a different chunk size).
+     *
+     * @param path      the path of the file
+     * @param chunkSize the size of a chunk, in bytes
+     * @param pool      the pool which hashes the chunks
+     * @return self
+     */
+    public Hashing updateFileTree(Path path, int chunkSize, ForkJoinPool pool) {
+        requireNonNull(path);
+        requireBounded(chunkSize, MIN_CHUNK_SIZE, Integer.MAX_VALUE);
+        requireNonNull(pool);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkCount = (size + chunkSize - 1) / chunkSize;
+            int hashSize = algorithm.getBits() / Byte.SIZE;
+            if (chunkCount > Integer.MAX_VALUE / hashSize) {
+                throw new IllegalArgumentException("Chunk size " + chunkSize + " is too small for a file of " + size + " bytes");
+            }
+            byte[] hashes = new byte[(int) chunkCount * hashSize];
+            if (chunkCount > 0) pool.invoke(new ChunkTask(algorithm, channel, size, chunkSize, 0, (int) chunkCount, hashes));
+            hasher.putLong(size);
+            hasher.putInt(chunkSize);
+            hasher.putBytes(hashes);
+        } catch (IOException e) {
+            rethrowException(e);
         }
         return this;
     }
@@ -99,11 +322,13 @@ public final class Hashing {
 
     /**
      * Returns the hash as a long.
+     * <p>
+     * Hashes with less than 64 bits are padded with zeros.
      *
      * @return the hash
      */
     public long asLong() {
-        return hasher.hash().asLong();
+        return hasher.hash().padToLong();
     }
 
     /**
@@ -124,78 +349,179 @@ public final class Hashing {
         return hasher.hash().asBytes();
     }
 
-    private void updateNumber(Number number) {
-        if (number instanceof Integer) {
-            hasher.putInt((Integer) number);
-        } else if (number instanceof Long) {
-            hasher.putLong((Long) number);
-        } else if (number instanceof Float) {
-            hasher.putFloat((Float) number);
-        } else if (number instanceof Double) {
-            hasher.putDouble((Double) number);
-        } else {
-            hasher.putInt(number.intValue());
-        }
-    }
-
     private void updateTemporal(Temporal temporal) {
         ZonedDateTime zonedDateTime = TimeUtils.toZonedDateTime(temporal);
         hasher.putLong(zonedDateTime.toInstant().toEpochMilli());
     }
 
-    private void updateOther(Object value) {
-        if (value instanceof Collection<?>) {
-            for (Object cvalue : ((Collection<?>) value)) {
-                update(cvalue);
-            }
-        } else if (value instanceof Map<?, ?>) {
-            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
-                update(entry.getKey());
-                update(entry.getValue());
-            }
-        } else if (value instanceof InputStream) {
-            update((InputStream) value);
-        } else if (value instanceof URI) {
-            update(((URI) value).toASCIIString());
-        } else if (value instanceof URL) {
-            update(((URL) value).toExternalForm());
-        } else if (value instanceof Reader) {
-            update((Reader) value);
-        } else if (ObjectUtils.isArray(value)) {
-            ObjectUtils.forEach(value, this::update);
+    private void updateCollection(Collection<?> collection) {
+        for (Object value : collection) {
+            update(value);
+        }
+    }
+
+    private void updateMap(Map<?, ?> map) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            update(entry.getKey());
+            update(entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the number of milliseconds since epoch, without creating intermediate objects.
+     */
+    private static long toEpochMilli(long epochSecond, int nanos) {
+        return epochSecond * 1000 + nanos / 1_000_000;
+    }
+
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        ZoneOffset offset = SYSTEM_ZONE_RULES.getOffset(dateTime);
+        return toEpochMilli(dateTime.toEpochSecond(offset), dateTime.getNano());
+    }
+
+    /**
+     * Resolves how the values of a class are hashed, in the order of precedence of {@link #update(Object)}.
+     */
+    private static Updater createUpdater(Class<?> type) {
+        if (type == String.class) {
+            return (hashing, value) -> hashing.hasher.putString((String) value, StandardCharsets.UTF_8);
+        } else if (type == Integer.class) {
+            return (hashing, value) -> hashing.hasher.putInt((Integer) value);
+        } else if (type == Long.class) {
+            return (hashing, value) -> hashing.hasher.putLong((Long) value);
+        } else if (type == Float.class) {
+            return (hashing, value) -> hashing.hasher.putFloat((Float) value);
+        } else if (type == Double.class) {
+            return (hashing, value) -> hashing.hasher.putDouble((Double) value);
+        } else if (Number.class.isAssignableFrom(type)) {
+            return (hashing, value) -> hashing.hasher.putInt(((Number) value).intValue());
+        } else if (type == Boolean.class) {
+            return (hashing, value) -> hashing.hasher.putBoolean((Boolean) value);
+        } else if (type == Character.class) {
+            return (hashing, value) -> hashing.hasher.putChar((Character) value);
+        } else if (type == byte[].class) {
+            return (hashing, value) -> hashing.hasher.putBytes((byte[]) value);
+        } else if (type == char[].class) {
+            return (hashing, value) -> hashing.updateChars(CharBuffer.wrap((char[]) value));
+        } else if (Enum.class.isAssignableFrom(type)) {
+            return (hashing, value) -> hashing.hasher.putString(((Enum<?>) value).name(), StandardCharsets.UTF_8);
+        } else if (type == Instant.class) {
+            return (hashing, value) -> hashing.hasher.putLong(((Instant) value).toEpochMilli());
+        } else if (type == LocalDateTime.class) {
+            return (hashing, value) -> hashing.hasher.putLong(toEpochMilli((LocalDateTime) value));
+        } else if (type == ZonedDateTime.class) {
+            return (hashing, value) -> {
+                ZonedDateTime dateTime = (ZonedDateTime) value;
+                hashing.hasher.putLong(toEpochMilli(dateTime.toEpochSecond(), dateTime.getNano()));
+            };
+        } else if (type == OffsetDateTime.class) {
+            return (hashing, value) -> {
+                OffsetDateTime dateTime = (OffsetDateTime) value;
+                hashing.hasher.putLong(toEpochMilli(dateTime.toEpochSecond(), dateTime.getNano()));
+            };
+        } else if (Temporal.class.isAssignableFrom(type)) {
+            return (hashing, value) -> hashing.updateTemporal((Temporal) value);
+        } else if (Collection.class.isAssignableFrom(type)) {
+            return (hashing, value) -> hashing.updateCollection((Collection<?>) value);
+        } else if (Map.class.isAssignableFrom(type)) {
+            return (hashing, value) -> hashing.updateMap((Map<?, ?>) value);
+        } else if (InputStream.class.isAssignableFrom(type)) {
+            return (hashing, value) -> hashing.updateStream((InputStream) value);
+        } else if (Path.class.isAssignableFrom(type)) {
+            // the path, not the content (see updateFile)
+            return (hashing, value) -> hashing.update(value.toString());
+        } else if (type == File.class) {
+            return (hashing, value) -> hashing.update(((File) value).getPath());
+        } else if (type == URI.class) {
+            return (hashing, value) -> hashing.update(((URI) value).toASCIIString());
+        } else if (type == URL.class) {
+            return (hashing, value) -> hashing.update(((URL) value).toExternalForm());
+        } else if (Reader.class.isAssignableFrom(type)) {
+            return (hashing, value) -> hashing.updateReader((Reader) value);
+        } else if (CharSequence.class.isAssignableFrom(type)) {
+            return (hashing, value) -> hashing.update((CharSequence) value);
+        } else if (type.isArray()) {
+            return (hashing, value) -> ObjectUtils.forEach(value, hashing::update);
         } else {
-            throwUnsupportedType(value);
+            HashingPlan plan = HashingPlan.get(type);
+            return (hashing, value) -> hashing.updateBean(plan, value);
         }
     }
 
-    private void update(InputStream inputStream) {
-        byte[] buffer = new byte[IOUtils.BUFFER_SIZE];
+    private void updateBean(HashingPlan plan, Object bean) {
+        try {
+            if (++depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("Object graph too deep (or with cycles), at " + ClassUtils.getName(bean));
+            }
+            plan.update(this, hasher, bean);
+        } finally {
+            depth--;
+        }
+    }
+
+    private void updateStream(InputStream inputStream) {
+        byte[] buffer = BUFFERS.get().getBytes();
         try {
             int length;
-            do {
-                length = inputStream.read(buffer, 0, buffer.length);
-                if (length > 0) update(buffer);
-            } while (length > 0);
+            while ((length = inputStream.read(buffer, 0, buffer.length)) != -1) {
+                hasher.putBytes(buffer, 0, length);
+            }
         } catch (IOException e) {
             rethrowException(e);
         }
     }
 
-    private void update(Reader reader) {
-        char[] buffer = new char[IOUtils.BUFFER_SIZE];
+    private void updateReader(Reader reader) {
+        Buffers buffers = BUFFERS.get();
+        CharBuffer chars = buffers.getChars();
+        chars.clear();
+        buffers.getEncoder().reset();
         try {
-            int length;
-            do {
-                length = reader.read(buffer, 0, buffer.length);
-                if (length > 0) update(buffer);
-            } while (length > 0);
+            while (reader.read(chars) != -1) {
+                chars.flip();
+                encode(buffers, chars, false);
+                chars.compact();
+            }
+            chars.flip();
+            encode(buffers, chars, true);
         } catch (IOException e) {
             rethrowException(e);
         }
     }
 
-    private void throwUnsupportedType(Object value) {
-        throw new IllegalArgumentException("Unsupported type: " + ClassUtils.getName(value));
+    private void updateChars(CharBuffer chars) {
+        Buffers buffers = BUFFERS.get();
+        buffers.getEncoder().reset();
+        encode(buffers, chars, true);
+    }
+
+    /**
+     * Encodes characters (UTF-8) and updates the hash with the bytes, without creating intermediate strings.
+     * <p>
+     * The hash is the same as the hash of the characters as a string. If the input does not end, an incomplete
+     * surrogate pair is left in the buffer, to be encoded with the next characters.
+     */
+    private void encode(Buffers buffers, CharBuffer chars, boolean endOfInput) {
+        CharsetEncoder encoder = buffers.getEncoder();
+        ByteBuffer bytes = buffers.getEncodedBytes();
+        for (; ; ) {
+            bytes.clear();
+            boolean overflow = encoder.encode(chars, bytes, endOfInput).isOverflow();
+            if (!overflow && endOfInput) {
+                while (encoder.flush(bytes).isOverflow()) {
+                    putBytes(bytes);
+                }
+                encoder.reset();
+            }
+            putBytes(bytes);
+            if (!overflow) break;
+        }
+    }
+
+    private void putBytes(ByteBuffer bytes) {
+        bytes.flip();
+        hasher.putBytes(bytes);
+        bytes.clear();
     }
 
     /**
@@ -205,8 +531,20 @@ public final class Hashing {
      * @return a non-null instance
      */
     public static String hash(String value) {
-        Hasher hasher = com.google.common.hash.Hashing.murmur3_128().newHasher();
-        if (value != null) hasher.putBytes(value.getBytes());
+        return hash(value, Algorithm.MURMUR3_128);
+    }
+
+    /**
+     * Calculates a hash of the value, usually an URI, with a given algorithm.
+     *
+     * @param value     the value
+     * @param algorithm the algorithm
+     * @return a non-null instance
+     */
+    public static String hash(String value, Algorithm algorithm) {
+        requireNonNull(algorithm);
+        Hasher hasher = HashingAlgorithms.newHasher(algorithm);
+        if (value != null) hasher.putString(value, StandardCharsets.UTF_8);
         return hasher.hash().toString();
     }
 
@@ -214,4 +552,155 @@ public final class Hashing {
         long value = data[offset++] + (long) data[offset++] << 8 + (long) data[offset++] << 16 + (long) data[offset++] << 24 + (long) data[offset++] << 32 + (long) data[offset++] << 40 + (long) data[offset++] << 48 + (long) data[offset++] << 56;
         return Long.toString(value, Character.MAX_RADIX);
     }
+
+    /**
+     * Updates a hash with a value of a given class.
+     */
+    @FunctionalInterface
+    private interface Updater {
+
+        void update(Hashing hashing, Object value);
+    }
+
+    /**
+     * An enum for the hashing algorithms.
+     */
+    public enum Algorithm {
+
+        /**
+         * Murmur3, 128 bits (the default), a good general purpose hash.
+         */
+        MURMUR3_128(128),
+
+        /**
+         * Murmur3, 32 bits.
+         */
+        MURMUR3_32(32),
+
+        /**
+         * xxHash, 64 bits, a fast hash for hash table keys and sharding.
+         */
+        XXHASH64(64),
+
+        /**
+         * CRC32C, 32 bits, a checksum for integrity checks (accelerated by the hardware on most platforms).
+         */
+        CRC32C(32);
+
+        private final int bits;
+
+        Algorithm(int bits) {
+            this.bits = bits;
+        }
+
+        /**
+         * Returns the number of bits in the hash.
+         *
+         * @return a positive integer
+         */
+        public int getBits() {
+            return bits;
+        }
+    }
+
+    /**
+     * Hashes a range of chunks of a file, splitting the range until a task holds a single chunk.
+     */
+    private static final class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 7512093326021873954L;
+
+        private final Algorithm algorithm;
+        private final FileChannel channel;
+        private final long size;
+        private final int chunkSize;
+        private final int from;
+        private final int to;
+        private final byte[] hashes;
+
+        private ChunkTask(Algorithm algorithm, FileChannel channel, long size, int chunkSize, int from, int to,
+                          byte[] hashes) {
+            this.algorithm = algorithm;
+            this.channel = channel;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.from = from;
+            this.to = to;
+            this.hashes = hashes;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(algorithm, channel, size, chunkSize, from, middle, hashes),
+                        new ChunkTask(algorithm, channel, size, chunkSize, middle, to, hashes));
+            } else {
+                try {
+                    hashChunk();
+                } catch (IOException e) {
+                    rethrowException(e);
+                }
+            }
+        }
+
+        private void hashChunk() throws IOException {
+            Hasher chunkHasher = HashingAlgorithms.newHasher(algorithm);
+            ByteBuffer buffer = BUFFERS.get().getDirectBuffer();
+            long position = (long) from * chunkSize;
+            long end = Math.min(size, position + chunkSize);
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int count = channel.read(buffer, position);
+                if (count < 0) throw new EOFException("File truncated while hashed, at " + position);
+                buffer.flip();
+                chunkHasher.putBytes(buffer);
+                position += count;
+            }
+            int hashSize = algorithm.getBits() / Byte.SIZE;
+            HashCode hash = chunkHasher.hash();
+            hash.writeBytesTo(hashes, from * hashSize, hashSize);
+        }
+    }
+
+    /**
+     * Buffers reused by all the hashes calculated by a thread.
+     */
+    private static final class Buffers {
+
+        private byte[] bytes;
+        private ByteBuffer directBuffer;
+        private CharBuffer chars;
+        private ByteBuffer encodedBytes;
+        private CharsetEncoder encoder;
+
+        private byte[] getBytes() {
+            if (bytes == null) bytes = new byte[IOUtils.BUFFER_SIZE];
+            return bytes;
+        }
+
+        private ByteBuffer getDirectBuffer() {
+            if (directBuffer == null) directBuffer = ByteBuffer.allocateDirect(IOUtils.BUFFER_SIZE);
+            return directBuffer;
+        }
+
+        private CharBuffer getChars() {
+            if (chars == null) chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+            return chars;
+        }
+
+        private ByteBuffer getEncodedBytes() {
+            if (encodedBytes == null) encodedBytes = ByteBuffer.allocate(CHAR_BUFFER_SIZE * 3);
+            return encodedBytes;
+        }
+
+        private CharsetEncoder getEncoder() {
+            if (encoder == null) {
+                encoder = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            }
+            return encoder;
+        }
+    }
 }
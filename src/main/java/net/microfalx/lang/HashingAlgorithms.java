@@ -0,0 +1,294 @@
+package net.microfalx.lang;
+
+import com.google.common.hash.Funnel;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32C;
+
+/**
+ * Holds the hash functions available with {@link Hashing.Algorithm}.
+ * <p>
+ * Murmur3 comes from Guava, CRC32C uses the JDK implementation (which is an intrinsic on most platforms)
+ * and xxHash64 is implemented here. All of them follow the conventions of Guava hashers: primitives are
+ * written in little-endian order and strings are encoded before they are hashed.
+ */
+@SuppressWarnings("UnstableApiUsage")
+final class HashingAlgorithms {
+
+    private HashingAlgorithms() {
+    }
+
+    /**
+     * Creates a hasher for an algorithm.
+     *
+     * @param algorithm the algorithm
+     * @return a non-null instance
+     */
+    static Hasher newHasher(Hashing.Algorithm algorithm) {
+        switch (algorithm) {
+            case MURMUR3_128:
+                return com.google.common.hash.Hashing.murmur3_128().newHasher();
+            case MURMUR3_32:
+                return com.google.common.hash.Hashing.murmur3_32_fixed().newHasher();
+            case XXHASH64:
+                return new XxHash64Hasher();
+            case CRC32C:
+                return new Crc32cHasher();
+            default:
+                throw new IllegalArgumentException("Unsupported algorithm: " + algorithm);
+        }
+    }
+
+    /**
+     * A hasher which turns all the values in bytes.
+     */
+    private abstract static class ByteHasher implements Hasher {
+
+        private final ByteBuffer scratch = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        /**
+         * Updates the hash with a range of bytes.
+         */
+        protected abstract void update(byte[] bytes, int offset, int length);
+
+        /**
+         * Updates the hash with the remaining bytes of a buffer, the buffer is consumed.
+         */
+        protected void update(ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                buffer.position(buffer.limit());
+            } else {
+                byte[] bytes = new byte[Math.min(buffer.remaining(), IOUtils.BUFFER_SIZE)];
+                while (buffer.hasRemaining()) {
+                    int length = Math.min(buffer.remaining(), bytes.length);
+                    buffer.get(bytes, 0, length);
+                    update(bytes, 0, length);
+                }
+            }
+        }
+
+        private Hasher updateScratch(int length) {
+            update(scratch.array(), 0, length);
+            scratch.clear();
+            return this;
+        }
+
+        @Override
+        public Hasher putByte(byte b) {
+            scratch.put(b);
+            return updateScratch(Byte.BYTES);
+        }
+
+        @Override
+        public Hasher putBytes(byte[] bytes) {
+            update(bytes, 0, bytes.length);
+            return this;
+        }
+
+        @Override
+        public Hasher putBytes(byte[] bytes, int offset, int length) {
+            if (offset < 0 || length < 0 || offset + length > bytes.length) {
+                throw new IndexOutOfBoundsException("Invalid range " + offset + ", " + length + " for " + bytes.length + " bytes");
+            }
+            update(bytes, offset, length);
+            return this;
+        }
+
+        @Override
+        public Hasher putBytes(ByteBuffer bytes) {
+            update(bytes);
+            return this;
+        }
+
+        @Override
+        public Hasher putShort(short value) {
+            scratch.putShort(value);
+            return updateScratch(Short.BYTES);
+        }
+
+        @Override
+        public Hasher putInt(int value) {
+            scratch.putInt(value);
+            return updateScratch(Integer.BYTES);
+        }
+
+        @Override
+        public Hasher putLong(long value) {
+            scratch.putLong(value);
+            return updateScratch(Long.BYTES);
+        }
+
+        @Override
+        public Hasher putFloat(float value) {
+            return putInt(Float.floatToRawIntBits(value));
+        }
+
+        @Override
+        public Hasher putDouble(double value) {
+            return putLong(Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        public Hasher putBoolean(boolean value) {
+            return putByte(value ? (byte) 1 : (byte) 0);
+        }
+
+        @Override
+        public Hasher putChar(char value) {
+            scratch.putChar(value);
+            return updateScratch(Character.BYTES);
+        }
+
+        @Override
+        public Hasher putUnencodedChars(CharSequence chars) {
+            for (int i = 0; i < chars.length(); i++) {
+                putChar(chars.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Hasher putString(CharSequence chars, Charset charset) {
+            return putBytes(chars.toString().getBytes(charset));
+        }
+
+        @Override
+        public <T> Hasher putObject(T instance, Funnel<? super T> funnel) {
+            funnel.funnel(instance, this);
+            return this;
+        }
+
+        @Override
+        @Deprecated
+        public int hashCode() {
+            return hash().asInt();
+        }
+    }
+
+    /**
+     * CRC32C (Castagnoli), through the JDK implementation.
+     */
+    private static final class Crc32cHasher extends ByteHasher {
+
+        private final CRC32C checksum = new CRC32C();
+
+        @Override
+        protected void update(byte[] bytes, int offset, int length) {
+            checksum.update(bytes, offset, length);
+        }
+
+        @Override
+        protected void update(ByteBuffer buffer) {
+            checksum.update(buffer);
+        }
+
+        @Override
+        public HashCode hash() {
+            return HashCode.fromInt((int) checksum.getValue());
+        }
+    }
+
+    /**
+     * xxHash64 (seed 0), see <a href="https://github.com/Cyan4973/xxHash">xxHash</a>.
+     * <p>
+     * Input is processed in stripes of 32 bytes, an incomplete stripe is kept until more bytes arrive.
+     */
+    private static final class XxHash64Hasher extends ByteHasher {
+
+        private static final long PRIME1 = 0x9E3779B185EBCA87L;
+        private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+        private static final long PRIME3 = 0x165667B19E3779F9L;
+        private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+        private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+        private static final int STRIPE_SIZE = 32;
+
+        private final ByteBuffer stripe = ByteBuffer.allocate(STRIPE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long v1 = PRIME1 + PRIME2;
+        private long v2 = PRIME2;
+        private long v3 = 0;
+        private long v4 = -PRIME1;
+        private long length;
+
+        @Override
+        protected void update(byte[] bytes, int offset, int count) {
+            length += count;
+            int end = offset + count;
+            if (stripe.position() > 0) {
+                int fill = Math.min(stripe.remaining(), count);
+                stripe.put(bytes, offset, fill);
+                offset += fill;
+                if (stripe.hasRemaining()) return;
+                stripe.flip();
+                processStripe(stripe);
+                stripe.clear();
+            }
+            if (end - offset >= STRIPE_SIZE) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, end - offset).order(ByteOrder.LITTLE_ENDIAN);
+                while (buffer.remaining() >= STRIPE_SIZE) {
+                    processStripe(buffer);
+                }
+                offset = buffer.position();
+            }
+            stripe.put(bytes, offset, end - offset);
+        }
+
+        private void processStripe(ByteBuffer buffer) {
+            v1 = round(v1, buffer.getLong());
+            v2 = round(v2, buffer.getLong());
+            v3 = round(v3, buffer.getLong());
+            v4 = round(v4, buffer.getLong());
+        }
+
+        @Override
+        public HashCode hash() {
+            long hash;
+            if (length >= STRIPE_SIZE) {
+                hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                hash = mergeRound(hash, v1);
+                hash = mergeRound(hash, v2);
+                hash = mergeRound(hash, v3);
+                hash = mergeRound(hash, v4);
+            } else {
+                hash = PRIME5;
+            }
+            hash += length;
+            ByteBuffer tail = stripe.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            tail.flip();
+            while (tail.remaining() >= Long.BYTES) {
+                hash ^= round(0, tail.getLong());
+                hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+            }
+            if (tail.remaining() >= Integer.BYTES) {
+                hash ^= (tail.getInt() & 0xFFFFFFFFL) * PRIME1;
+                hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            }
+            while (tail.hasRemaining()) {
+                hash ^= (tail.get() & 0xFF) * PRIME5;
+                hash = Long.rotateLeft(hash, 11) * PRIME1;
+            }
+            hash ^= hash >>> 33;
+            hash *= PRIME2;
+            hash ^= hash >>> 29;
+            hash *= PRIME3;
+            hash ^= hash >>> 32;
+            return HashCode.fromLong(hash);
+        }
+
+        private static long round(long accumulator, long input) {
+            accumulator += input * PRIME2;
+            accumulator = Long.rotateLeft(accumulator, 31);
+            return accumulator * PRIME1;
+        }
+
+        private static long mergeRound(long accumulator, long value) {
+            accumulator ^= round(0, value);
+            return accumulator * PRIME1 + PRIME4;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package net.microfalx.lang;
+
+import com.google.common.hash.Hasher;
+import net.microfalx.lang.annotation.Ignore;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.microfalx.lang.ExceptionUtils.rethrowExceptionAndReturn;
+
+/**
+ * Holds the steps used by {@link Hashing} to hash the fields of an object (a bean).
+ * <p>
+ * A plan is built once per class, from the fields returned by {@link ReflectionUtils#getFields(Class)}, and
+ * cached. Static, transient, synthetic and {@link Ignore ignored} fields are skipped. Fields are read with method
+ * handles, primitives are passed to the hasher without boxing, the same way {@link Hashing#update(Object)}
+ * hashes their wrappers.
+ */
+@SuppressWarnings("UnstableApiUsage")
+final class HashingPlan {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<HashingPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected HashingPlan computeValue(Class<?> type) {
+            return new HashingPlan(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final Step[] steps;
+    private final String unsupportedReason;
+
+    /**
+     * Returns the plan of a class.
+     *
+     * @param type the class
+     * @return a non-null instance
+     */
+    static HashingPlan get(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    private HashingPlan(Class<?> type) {
+        this.type = type;
+        String reason = null;
+        List<Step> steps = new ArrayList<>();
+        if (type.getClassLoader() == null || type.getName().startsWith("java.")) {
+            reason = "JDK classes are not hashed by fields";
+        } else {
+            for (Field field : ReflectionUtils.getFields(type)) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                        || field.isAnnotationPresent(Ignore.class)) {
+                    continue;
+                }
+                if (!field.trySetAccessible()) {
+                    reason = "field '" + field.getName() + "' is not accessible";
+                    break;
+                }
+                steps.add(createStep(field));
+            }
+        }
+        this.unsupportedReason = reason;
+        this.steps = steps.toArray(new Step[0]);
+    }
+
+    /**
+     * Updates the hash with the fields of an object.
+     *
+     * @param hashing the hashing which receives the objects referenced by fields
+     * @param hasher  the hasher which receives the primitives
+     * @param bean    the object
+     */
+    void update(Hashing hashing, Hasher hasher, Object bean) {
+        if (unsupportedReason != null) {
+            throw new IllegalArgumentException("Unsupported type: " + ClassUtils.getName(type) + ", " + unsupportedReason);
+        }
+        try {
+            for (Step step : steps) {
+                step.update(hashing, hasher, bean);
+            }
+        } catch (Throwable e) {
+            rethrowExceptionAndReturn(e);
+        }
+    }
+
+    private static Step createStep(Field field) {
+        MethodHandle getter;
+        try {
+            getter = LOOKUP.unreflectGetter(field);
+        } catch (IllegalAccessException e) {
+            return rethrowExceptionAndReturn(e);
+        }
+        Class<?> type = field.getType();
+        if (!type.isPrimitive()) {
+            return new ObjectStep(getter.asType(MethodType.methodType(Object.class, Object.class)));
+        }
+        getter = getter.asType(MethodType.methodType(type, Object.class));
+        if (type == int.class) {
+            return new IntStep(getter);
+        } else if (type == long.class) {
+            return new LongStep(getter);
+        } else if (type == double.class) {
+            return new DoubleStep(getter);
+        } else if (type == float.class) {
+            return new FloatStep(getter);
+        } else if (type == boolean.class) {
+            return new BooleanStep(getter);
+        } else if (type == char.class) {
+            return new CharStep(getter);
+        } else {
+            // byte and short are hashed as integers, like their wrappers
+            return new IntStep(getter.asType(MethodType.methodType(int.class, Object.class)));
+        }
+    }
+
+    private abstract static class Step {
+
+        final MethodHandle getter;
+
+        Step(MethodHandle getter) {
+            this.getter = getter;
+        }
+
+        abstract void update(Hashing hashing, Hasher hasher, Object bean) throws Throwable;
+    }
+
+    private static final class ObjectStep extends Step {
+
+        ObjectStep(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void update(Hashing hashing, Hasher hasher, Object bean) throws Throwable {
+            hashing.update((Object) getter.invokeExact(bean));
+        }
+    }
+
+    private static final class IntStep extends Step {
+
+        IntStep(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void update(Hashing hashing, Hasher hasher, Object bean) throws Throwable {
+            hasher.putInt((int) getter.invokeExact(bean));
+        }
+    }
+
+    private static final class LongStep extends Step {
+
+        LongStep(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void update(Hashing hashing, Hasher hasher, Object bean) throws Throwable {
+            hasher.putLong((long) getter.invokeExact(bean));
+        }
+    }
+
+    private static final class DoubleStep extends Step {
+
+        DoubleStep(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void update(Hashing hashing, Hasher hasher, Object bean) throws Throwable {
+            hasher.putDouble((double) getter.invokeExact(bean));
+        }
+    }
+
+    private static final class FloatStep extends Step {
+
+        FloatStep(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void update(Hashing hashing, Hasher hasher, Object bean) throws Throwable {
+            hasher.putFloat((float) getter.invokeExact(bean));
+        }
+    }
+
+    private static final class BooleanStep extends Step {
+
+        BooleanStep(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void update(Hashing hashing, Hasher hasher, Object bean) throws Throwable {
+            hasher.putBoolean((boolean) getter.invokeExact(bean));
+        }
+    }
+
+    private static final class CharStep extends Step {
+
+        CharStep(MethodHandle getter) {
+            super(getter);
+        }
+
+        @Override
+        void update(Hashing hashing, Hasher hasher, Object bean) throws Throwable {
+            hasher.putChar((char) getter.invokeExact(bean));
+        }
+    }
+}
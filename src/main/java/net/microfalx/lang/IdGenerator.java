@@ -2,15 +2,21 @@ package net.microfalx.lang;
 
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
 
 import static java.lang.System.currentTimeMillis;
+import static net.microfalx.lang.ArgumentUtils.requireBounded;
 import static net.microfalx.lang.ArgumentUtils.requireNonNull;
 import static net.microfalx.lang.ExceptionUtils.getRootCauseDescription;
 import static net.microfalx.lang.StringUtils.isEmpty;
@@ -18,58 +24,112 @@ import static net.microfalx.lang.StringUtils.toIdentifier;
 
 /**
  * A UUID generator based on Twitter <a href="https://blog.twitter.com/engineering/en_us/a/2010/announcing-snowflake">snowflake</a>.
+ * <p>
+ * An identifier holds the number of milliseconds since {@link #EPOCH} (41 bits), the machine (10 bits) and a sequence
+ * (13 bits). Each thread takes identifiers from a stripe, with a compare-and-set, so threads rarely compete and
+ * never lock. A stripe holds a small block of the sequence space, reserved from the generator when the clock moves
+ * to a new millisecond or when the block is used up, so a single thread can still use the whole sequence space of a
+ * millisecond.
+ * <p>
+ * When the sequence space of a millisecond is used up, the generator continues with the next millisecond (ahead of
+ * the clock), so identifiers stay unique and roughly ordered by time. The generator never runs more than
+ * {@link #MAX_DRIFT_MILLIS} ahead of the clock, the callers wait for the clock instead.
+ * <p>
+ * The machine comes from the {@link #NODE_ID_PROPERTY} system property or it is leased for the lifetime of the process,
+ * so many processes can generate identifiers on the same host.
  */
 public class IdGenerator implements Identifiable<String> {
 
     private static final String DEFAULT_ID = "default";
 
-    static final long BOUND = 8192;
+    static final int SEQUENCE_BITS = 13;
+    static final int MACHINE_BITS = 10;
+    static final long BOUND = 1L << SEQUENCE_BITS;
     static final long EPOCH = ZonedDateTime.parse("2024-01-01T00:00:00Z").toInstant().toEpochMilli();
 
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + MACHINE_BITS;
+    private static final long SEQUENCE_MASK = BOUND - 1;
+    private static final int MAX_STRIPES = 64;
+    private static final int STRIPE_PADDING = 16;
+    private static final long MAX_ID = 0x7fff_ffff_ffff_ffffL;
+
+    /**
+     * The maximum number of milliseconds the time stamp of the identifiers can be ahead of the clock.
+     */
+    public static final long MAX_DRIFT_MILLIS = 100;
+
+    /**
+     * The maximum number of identifiers reserved with {@link #nextBlock(int)}.
+     */
+    public static final int MAX_BLOCK_SIZE = (int) (BOUND * MAX_DRIFT_MILLIS);
+    private static final char[] DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final char[] SORTABLE_DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] SORTABLE_VALUES = new byte[128];
+    private static final int SORTABLE_BITS = 5;
+    private static final int UUID_SPLIT_BITS = SEQUENCE_BITS + MACHINE_BITS - 12;
+
+    /**
+     * The maximum number of characters of an identifier encoded with {@link #appendTo(long, char[], int)}.
+     */
+    public static final int MAX_ENCODED_LENGTH = 13;
+
+    /**
+     * The number of characters of an identifier encoded with {@link #toSortableString(long)}.
+     */
+    public static final int SORTABLE_LENGTH = 13;
+
+    static {
+        Arrays.fill(SORTABLE_VALUES, (byte) -1);
+        for (int i = 0; i < SORTABLE_DIGITS.length; i++) {
+            SORTABLE_VALUES[SORTABLE_DIGITS[i]] = (byte) i;
+            SORTABLE_VALUES[Character.toLowerCase(SORTABLE_DIGITS[i])] = (byte) i;
+        }
+        SORTABLE_VALUES['O'] = SORTABLE_VALUES['o'] = 0;
+        SORTABLE_VALUES['I'] = SORTABLE_VALUES['i'] = SORTABLE_VALUES['L'] = SORTABLE_VALUES['l'] = 1;
+    }
+
+    static final int MAX_NODE_ID = (1 << MACHINE_BITS) - 1;
+    private static final String LEASE_DIRECTORY_NAME = "id";
+
+    /**
+     * The system property which sets the machine (node) identifier, between 0 and 1023.
+     * <p>
+     * When the property is not set, the identifier is leased through lock files in
+     * {@link JvmUtils#getVariableDirectory()}, so processes running on the same host get different identifiers.
+     */
+    public static final String NODE_ID_PROPERTY = "microfalx.id.node";
+
     static volatile int SERVER_ID = -1;
+    private static volatile IdGeneratorLease LEASE;
 
-    private final long prefix;
     private final String id;
-    private final AtomicInteger sequence = new AtomicInteger();
+    private final long machine;
+    private final long startTime;
+    private final int stripeMask;
+    private final int blockSize;
+    private final AtomicLongArray stripes;
+    private final AtomicLong allocation = new AtomicLong();
 
-    private static volatile IdGenerator GENERATOR;
     private static final Map<String, IdGenerator> GENERATORS = new ConcurrentHashMap<>();
 
     /**
-     * Returns the instance of the next generator.
-     * <p>
-     * It should not be cached.
+     * Returns the default generator.
+     *
+     * @return a non-null instance
      */
     public static IdGenerator get() {
-        if (GENERATOR == null || !GENERATOR.isValid()) {
-            synchronized (IdGenerator.class) {
-                if (GENERATOR == null || !GENERATOR.isValid()) {
-                    GENERATOR = new IdGenerator(DEFAULT_ID, currentTimeMillis(), getServerId());
-                }
-            }
-        }
-        return GENERATOR;
+        return DefaultHolder.GENERATOR;
     }
 
     /**
-     * Returns the instance of the next generator with a given identifier.
-     * <p>
-     * It should not be cached.
+     * Returns the generator with a given identifier.
+     *
+     * @param id the identifier of the generator
+     * @return a non-null instance
      */
     public static IdGenerator get(String id) {
         if (isEmpty(id)) return get();
-        id = toIdentifier(id);
-        IdGenerator idGenerator = GENERATORS.get(id);
-        if (idGenerator == null || !idGenerator.isValid()) {
-            synchronized (IdGenerator.class) {
-                idGenerator = GENERATORS.get(id);
-                if (idGenerator == null || !idGenerator.isValid()) {
-                    idGenerator = new IdGenerator(id, currentTimeMillis(), getServerId());
-                    GENERATORS.put(id, idGenerator);
-                }
-            }
-        }
-        return idGenerator;
+        return GENERATORS.computeIfAbsent(toIdentifier(id), k -> new IdGenerator(k, currentTimeMillis(), getServerId()));
     }
 
     @Override
@@ -89,14 +149,217 @@ public class IdGenerator implements Identifiable<String> {
     public static long rangeStart(Instant instant) {
         requireNonNull(instant);
         long value = instant.toEpochMilli() - EPOCH;
-        value <<= 23;
-        value &= 0x7fff_ffff_ffff_ffffL;
+        value <<= TIMESTAMP_SHIFT;
+        value &= MAX_ID;
         return value;
     }
 
+    /**
+     * Returns the end (inclusive) of the id range for a given instance.
+     * <p>
+     * All keys generated up to (and including) the millisecond of this time stamp are lower or equal to this value,
+     * so the keys generated between two instants are between {@link #rangeStart(Instant) rangeStart(from)} and
+     * {@code rangeEnd(to)}.
+     *
+     * @param instant the instance
+     * @return the end of the range
+     */
+    public static long rangeEnd(Instant instant) {
+        requireNonNull(instant);
+        long value = instant.toEpochMilli() - EPOCH + 1;
+        value <<= TIMESTAMP_SHIFT;
+        value &= MAX_ID;
+        return value - 1;
+    }
+
+    /**
+     * Returns the time stamp (milliseconds since the Java epoch) stored in an identifier.
+     * <p>
+     * When many identifiers are requested in the same millisecond, the time stamp can be slightly ahead
+     * of the moment the identifier was generated.
+     *
+     * @param id the identifier
+     * @return the time stamp
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    /**
+     * Returns the machine stored in an identifier.
+     *
+     * @param id the identifier
+     * @return the machine identifier
+     */
+    public static int machineOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    /**
+     * Returns the sequence stored in an identifier.
+     *
+     * @param id the identifier
+     * @return the sequence
+     */
+    public static int sequenceOf(long id) {
+        return (int) (id & SEQUENCE_MASK);
+    }
+
+    /**
+     * Appends an identifier, encoded the same way as {@link #nextAsString()}, to a builder.
+     *
+     * @param id      the identifier
+     * @param builder the builder
+     * @return the builder
+     */
+    public static StringBuilder appendTo(long id, StringBuilder builder) {
+        requireNonNull(builder);
+        requireBounded(id, 0, MAX_ID);
+        int length = getEncodedLength(id);
+        int end = builder.length() + length;
+        builder.setLength(end);
+        for (int i = end - 1; i >= end - length; i--) {
+            builder.setCharAt(i, DIGITS[(int) (id % Character.MAX_RADIX)]);
+            id /= Character.MAX_RADIX;
+        }
+        return builder;
+    }
+
+    /**
+     * Writes an identifier, encoded the same way as {@link #nextAsString()}, in a buffer.
+     * <p>
+     * The buffer needs at most {@link #MAX_ENCODED_LENGTH} characters after the offset.
+     *
+     * @param id     the identifier
+     * @param buffer the buffer
+     * @param offset the position of the first character
+     * @return the position after the last character
+     */
+    public static int appendTo(long id, char[] buffer, int offset) {
+        requireNonNull(buffer);
+        requireBounded(id, 0, MAX_ID);
+        int end = offset + getEncodedLength(id);
+        if (offset < 0 || end > buffer.length) {
+            throw new IndexOutOfBoundsException("Cannot write identifier at " + offset + " in a buffer of " + buffer.length + " characters");
+        }
+        for (int i = end - 1; i >= offset; i--) {
+            buffer[i] = DIGITS[(int) (id % Character.MAX_RADIX)];
+            id /= Character.MAX_RADIX;
+        }
+        return end;
+    }
+
+    /**
+     * Encodes an identifier with the <a href="https://www.crockford.com/base32.html">Crockford base32</a> alphabet.
+     * <p>
+     * The string has always {@link #SORTABLE_LENGTH} characters (padded with zeros), so the order of the strings
+     * is the order of the identifiers (and the order of time).
+     *
+     * @param id the identifier
+     * @return a non-null instance
+     */
+    public static String toSortableString(long id) {
+        char[] buffer = new char[SORTABLE_LENGTH];
+        appendSortableTo(id, buffer, 0);
+        return new String(buffer);
+    }
+
+    /**
+     * Writes an identifier, encoded like {@link #toSortableString(long)}, in a buffer.
+     *
+     * @param id     the identifier
+     * @param buffer the buffer
+     * @param offset the position of the first character
+     * @return the position after the last character
+     */
+    public static int appendSortableTo(long id, char[] buffer, int offset) {
+        requireNonNull(buffer);
+        requireBounded(id, 0, MAX_ID);
+        int end = offset + SORTABLE_LENGTH;
+        if (offset < 0 || end > buffer.length) {
+            throw new IndexOutOfBoundsException("Cannot write identifier at " + offset + " in a buffer of " + buffer.length + " characters");
+        }
+        for (int i = end - 1; i >= offset; i--) {
+            buffer[i] = SORTABLE_DIGITS[(int) (id & 0x1F)];
+            id >>>= SORTABLE_BITS;
+        }
+        return end;
+    }
+
+    /**
+     * Decodes an identifier encoded with {@link #toSortableString(long)}.
+     * <p>
+     * Decoding is case-insensitive and accepts the Crockford aliases ({@code O} for {@code 0}, {@code I} and
+     * {@code L} for {@code 1}).
+     *
+     * @param value the encoded identifier
+     * @return the identifier
+     */
+    public static long fromSortableString(CharSequence value) {
+        requireNonNull(value);
+        if (value.length() != SORTABLE_LENGTH) {
+            throw new IllegalArgumentException("Invalid identifier '" + value + "', expected " + SORTABLE_LENGTH + " characters");
+        }
+        long id = 0;
+        for (int i = 0; i < SORTABLE_LENGTH; i++) {
+            char c = value.charAt(i);
+            int digit = c < SORTABLE_VALUES.length ? SORTABLE_VALUES[c] : -1;
+            if (digit < 0 || (i == 0 && digit > 7)) {
+                throw new IllegalArgumentException("Invalid identifier '" + value + "', unexpected character '" + c + "'");
+            }
+            id = (id << SORTABLE_BITS) | digit;
+        }
+        return id;
+    }
+
+    /**
+     * Converts an identifier to a <a href="https://www.rfc-editor.org/rfc/rfc9562#name-uuid-version-7">UUID version 7</a>.
+     * <p>
+     * The UUID holds the time stamp of the identifier (milliseconds since the Unix epoch) followed by the machine
+     * and the sequence, so UUIDs sort (as unsigned bytes) in the order of the identifiers. The identifier can be
+     * extracted back with {@link #fromUUID(UUID)}.
+     *
+     * @param id the identifier
+     * @return a non-null instance
+     */
+    public static UUID toUUID(long id) {
+        requireBounded(id, 0, MAX_ID);
+        long node = id & ((1L << TIMESTAMP_SHIFT) - 1);
+        long mostSigBits = (timestampOf(id) << 16) | 0x7000L | (node >>> UUID_SPLIT_BITS);
+        long leastSigBits = 0x8000_0000_0000_0000L | ((node & ((1L << UUID_SPLIT_BITS) - 1)) << (62 - UUID_SPLIT_BITS));
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Extracts the identifier from a UUID created with {@link #toUUID(long)}.
+     *
+     * @param uuid the UUID
+     * @return the identifier
+     */
+    public static long fromUUID(UUID uuid) {
+        requireNonNull(uuid);
+        if (uuid.version() != 7 || uuid.variant() != 2) {
+            throw new IllegalArgumentException("Invalid identifier '" + uuid + "', expected a version 7 UUID");
+        }
+        long mostSigBits = uuid.getMostSignificantBits();
+        long leastSigBits = uuid.getLeastSignificantBits();
+        long node = ((mostSigBits & 0xFFF) << UUID_SPLIT_BITS) | ((leastSigBits >>> (62 - UUID_SPLIT_BITS)) & ((1L << UUID_SPLIT_BITS) - 1));
+        return (((mostSigBits >>> 16) - EPOCH) << TIMESTAMP_SHIFT) | node;
+    }
+
     IdGenerator(String id, long timestamp, int machineId) {
+        this(id, timestamp, machineId, Runtime.getRuntime().availableProcessors());
+    }
+
+    IdGenerator(String id, long timestamp, int machineId, int concurrency) {
+        requireBounded(machineId, 0, MAX_NODE_ID);
         this.id = isEmpty(id) ? DEFAULT_ID : id;
-        prefix = generatePrefix(timestamp, machineId);
+        this.machine = (long) machineId << SEQUENCE_BITS;
+        this.startTime = timestamp;
+        int stripeCount = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, 2 * concurrency - 1)));
+        this.stripeMask = stripeCount - 1;
+        this.blockSize = (int) (BOUND / (2 * stripeCount));
+        this.stripes = new AtomicLongArray(stripeCount * STRIPE_PADDING);
     }
 
     /**
@@ -105,14 +368,53 @@ public class IdGenerator implements Identifiable<String> {
      * @return a positive integer
      */
     public long next() {
-        int next = sequence.getAndIncrement();
-        if (next >= BOUND) {
-            return IdGenerator.get().next();
-        } else {
-            return prefix + next;
+        int index = getStripe() * STRIPE_PADDING;
+        for (; ; ) {
+            long last = stripes.get(index);
+            long time = getTime();
+            long next;
+            if (last != 0 && (last >>> TIMESTAMP_SHIFT) >= time && ((last + 1) & (blockSize - 1)) != 0) {
+                next = last + 1;
+            } else {
+                // if another thread advances the stripe first, the block is lost
+                next = toId(reserve(time, blockSize));
+            }
+            if (stripes.compareAndSet(index, last, next)) return next;
         }
     }
 
+    /**
+     * Reserves a number of (sortable) UUIDs at once.
+     * <p>
+     * The identifiers are reserved with a single atomic operation, they are increasing but not necessarily
+     * consecutive (a block can span many milliseconds). A block holds at most {@link #MAX_BLOCK_SIZE} identifiers,
+     * so its end is never more than two times {@link #MAX_DRIFT_MILLIS} ahead of the clock; larger imports should
+     * use {@link #asSupplier(int)}.
+     *
+     * @param count the number of identifiers
+     * @return a non-null instance
+     */
+    public long[] nextBlock(int count) {
+        requireBounded(count, 1, MAX_BLOCK_SIZE);
+        long[] ids = new long[count];
+        fill(ids, count);
+        return ids;
+    }
+
+    /**
+     * Returns a supplier which serves identifiers from blocks reserved with {@link #nextBlock(int)}.
+     * <p>
+     * The supplier is not thread safe, it should be used by a single thread (for example, a bulk loader).
+     * Identifiers which are not used are lost.
+     *
+     * @param blockSize the number of identifiers reserved at once
+     * @return a non-null instance
+     */
+    public LongSupplier asSupplier(int blockSize) {
+        requireBounded(blockSize, 1, MAX_BLOCK_SIZE);
+        return new BlockSupplier(this, blockSize);
+    }
+
     /**
      * Returns the next (sortable) UUID as a string.
      *
@@ -123,31 +425,167 @@ public class IdGenerator implements Identifiable<String> {
         return Long.toString(id, Character.MAX_RADIX);
     }
 
-    private boolean isValid() {
-        return sequence.get() < BOUND;
+    /**
+     * Returns the next (sortable) UUID as a fixed width string, see {@link #toSortableString(long)}.
+     *
+     * @return a non-null String
+     */
+    public String nextAsSortableString() {
+        return toSortableString(next());
     }
 
-    private long generatePrefix(long timestamp, long machineId) {
-        long value = timestamp - EPOCH;
-        value <<= 10;
-        value += machineId;
-        value <<= 13;
-        value &= 0x7fff_ffff_ffff_ffffL;
-        return value;
+    /**
+     * Returns the next (sortable) UUID as a UUID version 7, see {@link #toUUID(long)}.
+     *
+     * @return a non-null instance
+     */
+    public UUID nextAsUUID() {
+        return toUUID(next());
+    }
+
+    private static int getEncodedLength(long id) {
+        int length = 1;
+        while (id >= Character.MAX_RADIX) {
+            id /= Character.MAX_RADIX;
+            length++;
+        }
+        return length;
+    }
+
+    private void fill(long[] ids, int count) {
+        long reserved = ((long) count + blockSize - 1) & -blockSize;
+        long start = reserve(getTime(), reserved);
+        for (int i = 0; i < count; i++) {
+            ids[i] = toId(start + i);
+        }
+        // the stripe of the caller moves past the block (at the end of a block), so next() stays increasing
+        stripes.accumulateAndGet(getStripe() * STRIPE_PADDING, toId(start + reserved - 1), Math::max);
+    }
+
+    /**
+     * Reserves a range of the sequence space, aligned to the block size.
+     * <p>
+     * A position is the time stamp followed by the sequence, so the positions of consecutive milliseconds follow
+     * each other. The caller waits if the range would start more than {@link #MAX_DRIFT_MILLIS} ahead of the clock.
+     *
+     * @param time  the current time, relative to {@link #EPOCH}
+     * @param count the number of positions, a multiple of the block size
+     * @return the first position
+     */
+    private long reserve(long time, long count) {
+        for (; ; ) {
+            long current = allocation.get();
+            long start = Math.max(current, time << SEQUENCE_BITS);
+            start = (start + blockSize - 1) & -blockSize;
+            if ((start >>> SEQUENCE_BITS) - time > MAX_DRIFT_MILLIS) {
+                ThreadUtils.sleepMillis(1);
+                time = getTime();
+            } else if (allocation.compareAndSet(current, start + count)) {
+                return start;
+            }
+        }
+    }
+
+    private long toId(long position) {
+        return (((position >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT) | machine | (position & SEQUENCE_MASK)) & MAX_ID;
+    }
+
+    private int getStripe() {
+        return (int) Thread.currentThread().getId() & stripeMask;
+    }
+
+    private long getTime() {
+        return Math.max(currentTimeMillis(), startTime) - EPOCH;
     }
 
     private static int getServerId() {
-        if (SERVER_ID > 0) return SERVER_ID;
+        if (SERVER_ID >= 0) return SERVER_ID;
+        synchronized (IdGenerator.class) {
+            if (SERVER_ID < 0) SERVER_ID = resolveServerId();
+        }
+        return SERVER_ID;
+    }
+
+    private static int resolveServerId() {
+        String value = System.getProperty(NODE_ID_PROPERTY);
+        if (!isEmpty(value)) {
+            try {
+                return requireBounded(Integer.parseInt(value.trim()), 0, MAX_NODE_ID);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid node identifier in system property '" + NODE_ID_PROPERTY + "': " + value, e);
+            }
+        }
+        int preferredId = getAddressId();
+        LEASE = acquireLease(preferredId);
+        if (LEASE != null) return LEASE.getNodeId();
+        LoggerFactory.getLogger(IdGenerator.class).warn("Failed to lease a node identifier, use {} (from the local address)", preferredId);
+        return preferredId;
+    }
+
+    /**
+     * Leases a node identifier in the variable directory.
+     * <p>
+     * The directory is created by the lease. If it cannot be created (read-only file system), no identifier
+     * is leased and the caller falls back to the identifier derived from the local address.
+     *
+     * @param preferredId the identifier tried first
+     * @return the lease, null if the directory cannot be used or all identifiers are claimed
+     */
+    static IdGeneratorLease acquireLease(int preferredId) {
+        File directory;
+        try {
+            directory = new File(JvmUtils.getVariableDirectory(), LEASE_DIRECTORY_NAME);
+        } catch (Exception e) {
+            LoggerFactory.getLogger(IdGenerator.class).warn("Failed to locate the node lease directory: {}",
+                    getRootCauseDescription(e));
+            return null;
+        }
+        return IdGeneratorLease.acquire(directory, preferredId, MAX_NODE_ID, IdGeneratorLease.DEFAULT_HEARTBEAT_INTERVAL);
+    }
+
+    private static int getAddressId() {
         try {
             byte[] address = InetAddress.getLocalHost().getAddress();
             int addressLength = address.length;
-            int serverId = (int) address[addressLength - 1] & 0xFF | (int) address[addressLength - 2] & 0xFF << 8
-                    | (int) address[addressLength - 3] & 0xFF << 16;
-            SERVER_ID = serverId % 1024;
+            int serverId = (address[addressLength - 1] & 0xFF) | (address[addressLength - 2] & 0xFF) << 8
+                    | (address[addressLength - 3] & 0xFF) << 16;
+            return serverId % (MAX_NODE_ID + 1);
         } catch (UnknownHostException e) {
             LoggerFactory.getLogger(IdGenerator.class).warn("Failed to extract server id: {}", getRootCauseDescription(e));
-            SERVER_ID = 0;
+            return 0;
         }
-        return SERVER_ID;
+    }
+
+    /**
+     * Serves identifiers from blocks reserved by a generator.
+     */
+    private static final class BlockSupplier implements LongSupplier {
+
+        private final IdGenerator generator;
+        private final long[] ids;
+        private int index;
+
+        private BlockSupplier(IdGenerator generator, int blockSize) {
+            this.generator = generator;
+            this.ids = new long[blockSize];
+            this.index = blockSize;
+        }
+
+        @Override
+        public long getAsLong() {
+            if (index == ids.length) {
+                generator.fill(ids, ids.length);
+                index = 0;
+            }
+            return ids[index++];
+        }
+    }
+
+    /**
+     * Creates the default generator the first time it is used.
+     */
+    private static final class DefaultHolder {
+
+        private static final IdGenerator GENERATOR = new IdGenerator(DEFAULT_ID, currentTimeMillis(), getServerId());
     }
 }
@@ -0,0 +1,201 @@
+package net.microfalx.lang;
+
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.System.currentTimeMillis;
+import static net.microfalx.lang.ArgumentUtils.requireBounded;
+import static net.microfalx.lang.ArgumentUtils.requireNonNull;
+import static net.microfalx.lang.ExceptionUtils.getRootCauseDescription;
+
+/**
+ * Holds the machine (node) identifier claimed by an {@link IdGenerator} for the lifetime of the process.
+ * <p>
+ * Each identifier has a lock file in a shared directory. A process claims an identifier by locking its file,
+ * the lock is kept until the lease is closed or the process exits (the operating system releases the lock,
+ * even if the process crashes), so all the processes of a host get different identifiers.
+ * <p>
+ * While the lease is held, a heartbeat (the time and the process) is written periodically to the file. A file
+ * with a recent heartbeat is not claimed even if it can be locked, which protects the identifier on file systems
+ * where locks are not reliable.
+ */
+final class IdGeneratorLease implements AutoCloseable {
+
+    static final Duration DEFAULT_HEARTBEAT_INTERVAL = Duration.ofSeconds(10);
+
+    private static final int EXPIRATION_HEARTBEATS = 3;
+    private static final int HEARTBEAT_SIZE = 64;
+
+    private final int nodeId;
+    private final File file;
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final Duration heartbeatInterval;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Claims the first free identifier, starting with a preferred one.
+     *
+     * @param directory         the directory which holds the lock files
+     * @param preferredId       the identifier tried first
+     * @param maximumId         the maximum identifier (inclusive)
+     * @param heartbeatInterval the interval between heartbeats
+     * @return the lease, null if all identifiers are claimed or the directory cannot be used
+     */
+    static IdGeneratorLease acquire(File directory, int preferredId, int maximumId, Duration heartbeatInterval) {
+        requireNonNull(directory);
+        requireBounded(preferredId, 0, maximumId);
+        requireNonNull(heartbeatInterval);
+        try {
+            FileUtils.validateDirectoryExists(directory);
+        } catch (Exception e) {
+            LoggerFactory.getLogger(IdGeneratorLease.class).warn("Failed to create node lease directory '{}': {}",
+                    directory, getRootCauseDescription(e));
+            return null;
+        }
+        for (int i = 0; i <= maximumId; i++) {
+            int nodeId = (preferredId + i) % (maximumId + 1);
+            IdGeneratorLease lease = tryAcquire(directory, nodeId, heartbeatInterval);
+            if (lease != null) return lease;
+        }
+        return null;
+    }
+
+    private static IdGeneratorLease tryAcquire(File directory, int nodeId, Duration heartbeatInterval) {
+        File file = new File(directory, "node-" + nodeId + ".lock");
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            FileLock lock = channel.tryLock();
+            if (lock == null || isAlive(channel, heartbeatInterval)) {
+                IOUtils.closeQuietly(channel);
+                return null;
+            }
+            return new IdGeneratorLease(nodeId, file, channel, lock, heartbeatInterval);
+        } catch (OverlappingFileLockException e) {
+            // already claimed by this process
+            IOUtils.closeQuietly(channel);
+            return null;
+        } catch (IOException e) {
+            LoggerFactory.getLogger(IdGeneratorLease.class).debug("Failed to claim node {} in '{}': {}",
+                    nodeId, directory, getRootCauseDescription(e));
+            IOUtils.closeQuietly(channel);
+            return null;
+        }
+    }
+
+    private static boolean isAlive(FileChannel channel, Duration heartbeatInterval) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEARTBEAT_SIZE);
+        channel.read(buffer, 0);
+        buffer.flip();
+        String heartbeat = StandardCharsets.US_ASCII.decode(buffer).toString().trim();
+        int separator = heartbeat.indexOf(' ');
+        if (separator <= 0) return false;
+        try {
+            long timestamp = Long.parseLong(heartbeat.substring(0, separator));
+            return currentTimeMillis() - timestamp < EXPIRATION_HEARTBEATS * heartbeatInterval.toMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private IdGeneratorLease(int nodeId, File file, FileChannel channel, FileLock lock, Duration heartbeatInterval) throws IOException {
+        this.nodeId = nodeId;
+        this.file = file;
+        this.channel = channel;
+        this.lock = lock;
+        this.heartbeatInterval = heartbeatInterval;
+        renew();
+        this.thread = new Thread(this::run, "Id Generator Lease");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns the claimed identifier.
+     *
+     * @return a positive integer
+     */
+    int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns the lock file.
+     *
+     * @return a non-null instance
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns whether the identifier is still claimed by this process.
+     *
+     * @return {@code true} if claimed, {@code false} otherwise
+     */
+    boolean isValid() {
+        return !closed && lock.isValid();
+    }
+
+    /**
+     * Writes a heartbeat to the lock file.
+     */
+    void renew() throws IOException {
+        String heartbeat = currentTimeMillis() + " " + ManagementFactory.getRuntimeMXBean().getName();
+        ByteBuffer buffer = ByteBuffer.allocate(HEARTBEAT_SIZE);
+        buffer.put(heartbeat.getBytes(StandardCharsets.US_ASCII), 0, Math.min(heartbeat.length(), HEARTBEAT_SIZE - 1));
+        while (buffer.hasRemaining()) buffer.put((byte) ' ');
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Releases the identifier.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            channel.truncate(0);
+        } catch (IOException e) {
+            // the heartbeat will expire
+        }
+        IOUtils.closeQuietly(channel);
+    }
+
+    private void run() {
+        while (!closed) {
+            LockSupport.parkNanos(this, heartbeatInterval.toNanos());
+            if (closed) break;
+            if (!lock.isValid()) {
+                LoggerFactory.getLogger(IdGeneratorLease.class).error("Lost the lease of node {} ({})", nodeId, file);
+                break;
+            }
+            try {
+                renew();
+            } catch (IOException e) {
+                LoggerFactory.getLogger(IdGeneratorLease.class).warn("Failed to renew the lease of node {} ({}): {}",
+                        nodeId, file, getRootCauseDescription(e));
+            }
+        }
+    }
+}
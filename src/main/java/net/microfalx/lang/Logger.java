@@ -1,19 +1,28 @@
 package net.microfalx.lang;
 
-import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Reader;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.io.Writer;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static net.microfalx.lang.ArgumentUtils.requireBounded;
 import static net.microfalx.lang.ArgumentUtils.requireNonNull;
-import static net.microfalx.lang.ExceptionUtils.getRootCauseDescription;
-import static net.microfalx.lang.ExceptionUtils.rethrowExceptionAndReturn;
+import static net.microfalx.lang.LoggerFormat.*;
 import static net.microfalx.lang.StringUtils.*;
 import static net.microfalx.lang.TextUtils.insertSpaces;
 import static net.microfalx.lang.TimeUtils.toLocalDateTime;
@@ -31,40 +40,64 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
     public static final int MEDIUM_INDENT = 5;
     public static final int LARGE_INDENT = 10;
     public static final int MEMORY_MAX_SIZE = 5_000_000;
-    private static final DateTimeFormatter LOG_TIME_FORMATTER = DateTimeFormatter.ofPattern("hh:mm:ss ");
 
     private static final int INDENT_STEPS = 3;
-
-    private final StringBuilder buffer = new StringBuilder();
-    private transient volatile byte[] bufferCompressed;
-    private int position;
+    private static final int MAX_PENDING_ENTRIES = 1000;
+    private static final int MAX_PROPAGATED_ENTRIES = 100;
+
+    private static final int SECTION_SETTINGS = 1;
+    private static final int SECTION_EVENTS = 2;
+
+    private static final int SETTING_SEVERITY = 1;
+    private static final int SETTING_TIMESTAMP = 2;
+    private static final int SETTING_BULLET = 4;
+    private static final int SETTING_DEBUG = 8;
+    private static final int SETTING_CONCURRENT_WRITES = 16;
+    private static final int SETTING_BATCHED_PROPAGATION = 32;
+
+    private final LoggerStorage storage = new LoggerStorage(MEMORY_MAX_SIZE);
+    private long position;
+    private LoggerEvents events;
+    private long eventPosition;
     private final Logger parent;
     private transient org.slf4j.Logger logger;
+    private transient LoggerBridge bridge;
+    private transient volatile LoggerFileSink.Target file;
+    private transient StringBuilder fileText;
     private boolean severity;
     private int indent;
     private boolean includeTimestamp = false;
     private boolean includeBullet;
     private boolean includeDebug;
-    private final String id = IdGenerator.get().nextAsString();
+    private volatile boolean concurrentWrites;
+    private volatile boolean batchedPropagation;
+    private volatile boolean serializedSettings = true;
+    private String id = IdGenerator.get().nextAsString();
     private String name;
     private String description;
-    private int maximumSize = MEMORY_MAX_SIZE;
     private int indentStep = INDENT_STEPS;
 
     private long createdAt;
-    private long firstAccess;
-    private long lastAccess;
+    private volatile long firstAccess;
+    private volatile long lastAccess;
 
-    private int debugCount;
-    private int infoCount;
-    private int warningCount;
-    private int errorCount;
+    private final AtomicInteger debugCount = new AtomicInteger();
+    private final AtomicInteger infoCount = new AtomicInteger();
+    private final AtomicInteger warningCount = new AtomicInteger();
+    private final AtomicInteger errorCount = new AtomicInteger();
     private int clearCount;
 
     private final AtomicInteger eventCount = new AtomicInteger();
 
-    private static final ThreadLocal<Stack<Logger>> LOGGER = ThreadLocal.withInitial(Stack::new);
-    private static final ThreadLocal<Logger> LAST = new ThreadLocal<>();
+    private final ConcurrentLinkedQueue<LoggerRecord> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean fileCollecting = new AtomicBoolean();
+
+    private final ConcurrentLinkedQueue<LoggerRecord> outgoing = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outgoingCount = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ConcurrentLinkedQueue<Logger> children = new ConcurrentLinkedQueue<>();
 
     /**
      * Returns the logger attached to the current thread.
@@ -74,9 +107,9 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @return a non-null instance
      */
     public static Logger current() {
-        Stack<Logger> stack = LOGGER.get();
-        if (stack.isEmpty()) stack.add(Logger.create());
-        return stack.peek();
+        Logger logger = LoggerContext.get();
+        if (logger == null) logger = Logger.create().attach();
+        return logger;
     }
 
     /**
@@ -87,7 +120,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @return a non-null instance
      */
     public static Logger last() {
-        Logger last = LAST.get();
+        Logger last = LoggerContext.getLast();
         return last != null ? last : Logger.create();
     }
 
@@ -97,14 +130,14 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @return <code>true</code> if it has a logger,
      */
     public static boolean hasCurrent() {
-        return LOGGER.get() != null;
+        return LoggerContext.get() != null;
     }
 
     /**
      * Resets logger information for the current thread.
      */
     public static void remove() {
-        LOGGER.remove();
+        LoggerContext.clear();
     }
 
     /**
@@ -165,6 +198,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
 
     private Logger(Logger parent) {
         this.parent = parent;
+        LoggerManager.get().register(this);
     }
 
     /**
@@ -191,7 +225,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @return a positive integer
      */
     public int getDebugCount() {
-        return debugCount;
+        return debugCount.get();
     }
 
     /**
@@ -200,7 +234,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @return a positive integer
      */
     public int getInfoCount() {
-        return infoCount;
+        return infoCount.get();
     }
 
     /**
@@ -209,7 +243,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @return a positive integer
      */
     public int getWarningCount() {
-        return warningCount;
+        return warningCount.get();
     }
 
     /**
@@ -218,7 +252,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @return a positive integer
      */
     public int getErrorCount() {
-        return errorCount;
+        return errorCount.get();
     }
 
     /**
@@ -241,6 +275,52 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
         return eventCount.get();
     }
 
+    /**
+     * Returns the number of characters retained in memory.
+     *
+     * @return a positive integer
+     */
+    public long getLength() {
+        synchronized (storage) {
+            return storage.getHeapLength();
+        }
+    }
+
+    /**
+     * Returns the number of bytes used in memory by the log.
+     *
+     * @return a positive integer
+     * @see LoggerManager
+     */
+    public long getMemorySize() {
+        synchronized (storage) {
+            return storage.getMemorySize();
+        }
+    }
+
+    /**
+     * Returns the ratio between the size of the text retained in memory and the memory used.
+     *
+     * @return a positive number, 1 if the log is not compressed
+     */
+    public float getCompressionRatio() {
+        synchronized (storage) {
+            long size = storage.getMemorySize();
+            return size == 0 ? 1 : (float) (2 * storage.getHeapLength()) / size;
+        }
+    }
+
+    /**
+     * Returns whether the log is compressed.
+     *
+     * @return <code>true</code> if compressed, <code>false</code> otherwise
+     */
+    public boolean isCompressed() {
+        synchronized (storage) {
+            return storage.isCompressed();
+        }
+    }
+
     /**
      * Returns the time when the logger was created
      *
@@ -321,10 +401,11 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
 
     /**
      * Attaches logger to the current thread.
+     * <p>
+     * The logger can be carried into tasks executed by other threads with {@link LoggerContext}.
      */
     public Logger attach() {
-        Stack<Logger> stack = LOGGER.get();
-        stack.push(this);
+        LoggerContext.push(this);
         return this;
     }
 
@@ -332,8 +413,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * Detaches logger to the current thread.
      */
     public Logger detach() {
-        Stack<Logger> stack = LOGGER.get();
-        if (!stack.isEmpty()) LAST.set(stack.pop());
+        LoggerContext.pop();
         return this;
     }
 
@@ -390,69 +470,484 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @return self
      */
     public Logger withLogger(org.slf4j.Logger logger) {
+        return withLogger(logger, null);
+    }
+
+    /**
+     * Attaches an application logger, to log every entry in the process log.
+     * <p>
+     * When a bridge is provided, the entries are forwarded asynchronously by the bridge (usually
+     * {@link LoggerBridge#getDefault()}), otherwise they are forwarded by the thread which logs.
+     *
+     * @param logger the application logger
+     * @param bridge the bridge used to forward entries, null to forward entries synchronously
+     * @return self
+     */
+    public Logger withLogger(org.slf4j.Logger logger, LoggerBridge bridge) {
         this.logger = logger;
+        this.bridge = bridge;
+        return this;
+    }
+
+    /**
+     * Writes every entry to a file, using the {@link LoggerFileSink#getDefault() default} file sink.
+     *
+     * @param file the file, null to stop writing to a file
+     * @return self
+     */
+    public Logger withFile(File file) {
+        return withFile(file, LoggerFileSink.getDefault());
+    }
+
+    /**
+     * Writes every entry to a file.
+     * <p>
+     * The entries are written asynchronously by the sink, the file is appended. Entries removed from the log
+     * (with {@link #unmark()} or {@link #clear()}) are not removed from the file.
+     *
+     * @param file the file, null to stop writing to a file
+     * @param sink the sink which writes the file
+     * @return self
+     */
+    public Logger withFile(File file, LoggerFileSink sink) {
+        requireNonNull(sink);
+        collect();
+        synchronized (storage) {
+            drainPending();
+            this.file = file != null ? sink.getTarget(file) : null;
+        }
+        return this;
+    }
+
+    /**
+     * Indicates whether the logger is written by many threads at the same time (default false).
+     * <p>
+     * When enabled, threads do not lock the logger to add entries. Each entry is formatted by the calling thread
+     * and queued, and the queue is consolidated in the log when the output is requested (or when too
+     * many entries are waiting). The order of entries logged by the same thread is preserved.
+     *
+     * @param concurrentWrites <code>true</code> to enable concurrent writes, <code>false</code> otherwise
+     * @return self
+     */
+    public Logger withConcurrentWrites(boolean concurrentWrites) {
+        synchronized (storage) {
+            drainPending();
+            this.concurrentWrites = concurrentWrites;
+        }
+        return this;
+    }
+
+    /**
+     * Indicates whether the entries are passed to the parent logger in batches (default false).
+     * <p>
+     * When enabled, the counters of all ancestors are updated right away, but the entries are queued and
+     * passed to the parent (and from there to the rest of the ancestors) only when enough entries are waiting
+     * or when an ancestor output is requested. The entries keep their original timestamp, but they receive the
+     * layout (indentation, bullets, etc.) the ancestor has when they arrive.
+     *
+     * @param batchedPropagation <code>true</code> to pass entries in batches, <code>false</code> to pass each entry
+     * @return self
+     */
+    public Logger withBatchedPropagation(boolean batchedPropagation) {
+        this.batchedPropagation = batchedPropagation;
+        if (!batchedPropagation) publish();
+        return this;
+    }
+
+    /**
+     * Indicates whether the settings (layout, indentation, mark) are serialized with the log (default true).
+     * <p>
+     * Loggers which are only shipped to be read (for example, the log of a finished job) can skip the settings,
+     * they are read back with the default settings.
+     *
+     * @param serializedSettings <code>true</code> to serialize the settings, <code>false</code> otherwise
+     * @return self
+     * @see #encode(DataOutput, boolean)
+     */
+    public Logger withSerializedSettings(boolean serializedSettings) {
+        this.serializedSettings = serializedSettings;
+        return this;
+    }
+
+    /**
+     * Indicates whether the logger keeps the entries as events, besides the text (default false).
+     * <p>
+     * Events are kept in a compact form (no text is formatted for the layout) and they can be filtered and
+     * rendered in different formats with {@link #render(LoggerRenderer, Predicate)}. The events are limited to
+     * the maximum size of the log, and they are kept only in memory.
+     * <p>
+     * The events are kept in addition to the text of the log, so enabling them increases the memory used by
+     * the logger (up to two times the maximum size, for the messages).
+     *
+     * @param events <code>true</code> to keep events, <code>false</code> otherwise
+     * @return self
+     */
+    public Logger withEvents(boolean events) {
+        collect();
+        synchronized (storage) {
+            drainPending();
+            if (!events) {
+                this.events = null;
+            } else if (this.events == null) {
+                this.events = new LoggerEvents(storage.getMaximumSize());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Changes the maximum number of characters retained by the logger (default {@link #MEMORY_MAX_SIZE}).
+     * <p>
+     * When the log goes over this size, the oldest entries are discarded.
+     *
+     * @param maximumSize the maximum number of characters
+     * @return self
+     */
+    public Logger withMaximumSize(int maximumSize) {
+        synchronized (storage) {
+            storage.setMaximumSize(maximumSize);
+            if (events != null) events.setMaximumSize(maximumSize);
+        }
+        return this;
+    }
+
+    /**
+     * Indicates whether the logger keeps the entries which go over the maximum size on disk (default false).
+     * <p>
+     * When enabled, the most recent entries stay in memory (up to the maximum size) and older entries are moved
+     * to a memory-mapped file instead of being discarded. The output includes the entries from both tiers.
+     *
+     * @param tiered <code>true</code> to move older entries to disk, <code>false</code> to discard them
+     * @return self
+     * @see #withMaximumSize(int)
+     */
+    public Logger withTieredStorage(boolean tiered) {
+        synchronized (storage) {
+            drainPending();
+            storage.setTiered(tiered ? id : null);
+        }
         return this;
     }
 
     /**
      * Returns the logger output.
      * <p>
-     * If a logger is attached to the thread, it is automatically unregistered.
+     * If the log went over the maximum size, only the most recent entries are returned, unless the logger
+     * uses a tiered storage.
      *
      * @return a non-null string
      */
     public String getOutput() {
-        synchronized (buffer) {
-            String text;
-            if (bufferCompressed != null) {
-                text = getDecompressedBuffer();
-            } else {
-                text = buffer.toString();
+        collect();
+        synchronized (storage) {
+            drainPending();
+            return StringUtils.trim(storage.toString());
+        }
+    }
+
+    /**
+     * Renders the events of the logger.
+     *
+     * @param renderer the renderer
+     * @return a non-null instance
+     * @see #withEvents(boolean)
+     */
+    public String render(LoggerRenderer renderer) {
+        return render(renderer, event -> true);
+    }
+
+    /**
+     * Renders the events of the logger accepted by a filter.
+     * <p>
+     * The filter receives the events in their compact form, without formatting the text.
+     *
+     * @param renderer the renderer
+     * @param filter   the filter
+     * @return a non-null instance
+     * @see LoggerEvent#atLeast(Severity)
+     * @see LoggerEvent#indentBetween(int, int)
+     */
+    public String render(LoggerRenderer renderer, Predicate<LoggerEvent> filter) {
+        requireNonNull(renderer);
+        requireNonNull(filter);
+        StringBuilder builder = new StringBuilder();
+        collect();
+        synchronized (storage) {
+            drainPending();
+            if (events == null) throw new IllegalStateException("Events are not retained by logger '" + id + "'");
+            events.render(renderer, filter, builder);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the position after the last entry in the log.
+     * <p>
+     * The position is absolute, it counts all the characters written since the logger was created (including
+     * the ones discarded or removed by {@link #clear()}), so it can be used to read only new entries.
+     *
+     * @return a positive integer
+     * @see #readFrom(long)
+     */
+    public long getOffset() {
+        collect();
+        synchronized (storage) {
+            drainPending();
+            return storage.getEnd();
+        }
+    }
+
+    /**
+     * Returns the entries written after a given position.
+     * <p>
+     * If the position was already discarded, the text starts with the oldest complete line retained.
+     *
+     * @param offset the position returned by {@link #getOffset()} (or {@link #writeTo(Writer, long)})
+     * @return a non-null instance
+     */
+    public String readFrom(long offset) {
+        StringBuilder builder = new StringBuilder();
+        collect();
+        synchronized (storage) {
+            drainPending();
+            while (offset < storage.getEnd()) {
+                offset = storage.read(offset, builder);
             }
-            return StringUtils.trim(text);
         }
+        return builder.toString();
+    }
+
+    /**
+     * Writes all the entries retained by the logger to a writer.
+     *
+     * @param writer the writer
+     * @return the position after the last character written
+     * @throws IOException if an I/O error occurs
+     * @see #writeTo(Writer, long)
+     */
+    public long writeTo(Writer writer) throws IOException {
+        return writeTo(writer, 0);
+    }
+
+    /**
+     * Writes the entries written after a given position to a writer.
+     * <p>
+     * The text is copied one block at a time and the logger is not locked while the writer is called, so a slow
+     * writer does not delay the threads which log.
+     *
+     * @param writer the writer
+     * @param offset the position of the first character
+     * @return the position after the last character written, to be used for the next call
+     * @throws IOException if an I/O error occurs
+     */
+    public long writeTo(Writer writer, long offset) throws IOException {
+        requireNonNull(writer);
+        long end = getOffset();
+        StringBuilder builder = new StringBuilder();
+        while (offset < end) {
+            builder.setLength(0);
+            long next = read(offset, builder);
+            writer.append(builder);
+            if (next <= offset) return next;
+            offset = next;
+        }
+        return offset;
+    }
+
+    /**
+     * Writes the logger in a compact binary format, which can be read back with {@link #decode(DataInput)}.
+     * <p>
+     * Counters and lengths are written as variable length integers and compressed blocks are written as they
+     * are, without being compressed again. The format starts with a version, so logs written with earlier versions
+     * of the format stay readable. The parent is not written, the logger is read back as a root logger.
+     * <p>
+     * The logger is also serialized in this format (see {@link #withSerializedSettings(boolean)}).
+     *
+     * @param output          the output
+     * @param includeSettings <code>true</code> to write the settings (layout, indentation, mark),
+     *                        <code>false</code> to write only the log, the events and the counters
+     * @throws IOException if an I/O error occurs
+     */
+    public void encode(DataOutput output, boolean includeSettings) throws IOException {
+        requireNonNull(output);
+        collect();
+        synchronized (storage) {
+            drainPending();
+            output.writeByte(VERSION);
+            output.writeByte((includeSettings ? SECTION_SETTINGS : 0) | (events != null ? SECTION_EVENTS : 0));
+            writeString(output, id);
+            writeString(output, name);
+            writeString(output, description);
+            writeVarLong(output, createdAt);
+            writeVarLong(output, firstAccess);
+            writeVarLong(output, lastAccess);
+            writeVarLong(output, debugCount.get());
+            writeVarLong(output, infoCount.get());
+            writeVarLong(output, warningCount.get());
+            writeVarLong(output, errorCount.get());
+            writeVarLong(output, eventCount.get());
+            writeVarLong(output, clearCount);
+            storage.encode(output);
+            if (events != null) events.encode(output);
+            if (includeSettings) {
+                output.writeByte((severity ? SETTING_SEVERITY : 0) | (includeTimestamp ? SETTING_TIMESTAMP : 0)
+                        | (includeBullet ? SETTING_BULLET : 0) | (includeDebug ? SETTING_DEBUG : 0)
+                        | (concurrentWrites ? SETTING_CONCURRENT_WRITES : 0)
+                        | (batchedPropagation ? SETTING_BATCHED_PROPAGATION : 0));
+                writeSignedVarLong(output, indent);
+                writeVarLong(output, indentStep);
+                writeVarLong(output, position);
+                writeVarLong(output, eventPosition);
+            }
+        }
+    }
+
+    /**
+     * Reads a logger written with {@link #encode(DataOutput, boolean)}, by this release or an older one.
+     *
+     * @param input the input
+     * @return a non-null instance
+     * @throws IOException if an I/O error occurs or the data is not a logger
+     */
+    public static Logger decode(DataInput input) throws IOException {
+        requireNonNull(input);
+        int version = requireVersion(input.readUnsignedByte());
+        int sections = input.readUnsignedByte();
+        Logger logger = new Logger(null);
+        synchronized (logger.storage) {
+            logger.id = readString(input);
+            if (logger.id == null) throw new StreamCorruptedException("Missing logger identifier");
+            logger.name = readString(input);
+            logger.description = readString(input);
+            logger.createdAt = readVarLong(input);
+            logger.firstAccess = readVarLong(input);
+            logger.lastAccess = readVarLong(input);
+            logger.debugCount.set(readVarInt(input));
+            logger.infoCount.set(readVarInt(input));
+            logger.warningCount.set(readVarInt(input));
+            logger.errorCount.set(readVarInt(input));
+            logger.eventCount.set(readVarInt(input));
+            logger.clearCount = readVarInt(input);
+            logger.storage.decode(input, version);
+            if ((sections & SECTION_EVENTS) != 0) {
+                logger.events = new LoggerEvents(logger.storage.getMaximumSize());
+                logger.events.decode(input, version);
+            }
+            if ((sections & SECTION_SETTINGS) != 0) {
+                int settings = input.readUnsignedByte();
+                logger.severity = (settings & SETTING_SEVERITY) != 0;
+                logger.includeTimestamp = (settings & SETTING_TIMESTAMP) != 0;
+                logger.includeBullet = (settings & SETTING_BULLET) != 0;
+                logger.includeDebug = (settings & SETTING_DEBUG) != 0;
+                logger.concurrentWrites = (settings & SETTING_CONCURRENT_WRITES) != 0;
+                logger.batchedPropagation = (settings & SETTING_BATCHED_PROPAGATION) != 0;
+                logger.indent = (int) readSignedVarLong(input);
+                logger.indentStep = readVarInt(input);
+                logger.position = readVarLong(input);
+                logger.eventPosition = readVarLong(input);
+            }
+        }
+        return logger;
+    }
+
+    /**
+     * Returns a reader over the entries retained by the logger.
+     * <p>
+     * The reader copies one block at a time and it also returns the entries written while it is used. The end of
+     * the stream is reached when the reader catches up with the log.
+     *
+     * @return a non-null instance
+     */
+    public Reader getReader() {
+        return new LogReader(this);
     }
 
     /**
      * Removes all entries.
      */
     public void clear() {
-        synchronized (buffer) {
-            bufferCompressed = null;
-            buffer.setLength(0);
+        collect();
+        synchronized (storage) {
+            drainPending();
+            storage.clear();
+            if (events != null) events.clear();
+            position = 0;
+            eventPosition = 0;
         }
         clearCount = 0;
-        debugCount = 0;
-        infoCount = 0;
-        warningCount = 0;
-        errorCount = 0;
+        debugCount.set(0);
+        infoCount.set(0);
+        warningCount.set(0);
+        errorCount.set(0);
         touch();
     }
 
     /**
      * Compresses the text created by the logger to reduce memory consumption (long storage).
+     * <p>
+     * The text already compressed is not touched again and new entries are added in a new block, which is
+     * compressed once full. There is no need to decompress the log to add more entries.
      */
     public void compress() {
-        synchronized (buffer) {
-            if (bufferCompressed == null && buffer.length() > 0) {
-                try {
-                    bufferCompressed = IOUtils.getInputStreamAsBytes(TextUtils.compressText(buffer.toString()));
-                    buffer.setLength(0);
-                } catch (IOException e) {
-                    ExceptionUtils.rethrowException(e);
-                }
+        collect();
+        synchronized (storage) {
+            drainPending();
+            storage.compress();
+        }
+    }
+
+    /**
+     * Evicts the oldest entries from memory until a given number of bytes is released.
+     *
+     * @param size the number of bytes
+     * @return the number of bytes released
+     */
+    long trim(long size) {
+        collect();
+        synchronized (storage) {
+            drainPending();
+            return storage.trim(size);
+        }
+    }
+
+    /**
+     * Copies the text which starts at a given position, up to the end of the block which holds it.
+     *
+     * @param offset  the position
+     * @param builder the builder which receives the text
+     * @return the position after the copied text
+     */
+    private long read(long offset, StringBuilder builder) {
+        collect();
+        synchronized (storage) {
+            drainPending();
+            int length = builder.length();
+            while (offset < storage.getEnd() && builder.length() == length) {
+                offset = storage.read(offset, builder);
             }
+            return Math.min(offset, storage.getEnd());
         }
     }
 
+    /**
+     * Returns the time when the logger was used last time, in milliseconds.
+     *
+     * @return a positive integer, 0 if the logger was never used
+     */
+    long getLastAccessTime() {
+        return lastAccess;
+    }
+
     /**
      * Marks the current position in the log. A subsequent call to the <code>reset</code> method repositions
      * the log write position at the last marked position so that subsequent writes will override some parts of the log.
      */
     public void mark() {
-        synchronized (buffer) {
-            uncompress();
-            position = buffer.length();
+        collect();
+        synchronized (storage) {
+            drainPending();
+            position = storage.getEnd();
+            if (events != null) eventPosition = events.getEnd();
         }
     }
 
@@ -460,10 +955,12 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * Repositions the log position at the time the <code>mark</code> method was last called.
      */
     public void unmark() {
-        synchronized (buffer) {
-            uncompress();
+        collect();
+        synchronized (storage) {
+            drainPending();
             if (position > 0) {
-                buffer.setLength(position);
+                storage.truncate(position);
+                if (events != null) events.truncate(eventPosition);
             }
         }
     }
@@ -477,14 +974,73 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      */
     public Logger append(Logger logger) {
         requireNonNull(logger);
-        synchronized (buffer) {
-            uncompress();
-            String text = insertSpaces(logger.getOutput(), getIndentationSpaces());
-            doAppend(text, true);
-            errorCount += logger.getErrorCount();
-            warningCount += logger.getWarningCount();
-            infoCount += logger.getInfoCount();
+        String text = insertSpaces(logger.getOutput(), getIndentationSpaces());
+        write(LoggerRecord.text(text + "\n"));
+        errorCount.addAndGet(logger.getErrorCount());
+        warningCount.addAndGet(logger.getWarningCount());
+        infoCount.addAndGet(logger.getInfoCount());
+        return this;
+    }
+
+    /**
+     * Creates a logger for a unit of work done in parallel, to be {@link #merge(Logger) merged} in this logger
+     * once the work is done.
+     * <p>
+     * The new logger has the same settings as this logger and it starts with the current indentation, but its
+     * entries are not passed to this logger (or its parents) until it is merged.
+     *
+     * @return a non-null instance
+     */
+    public Logger fork() {
+        Logger fork = new Logger(null);
+        fork.severity = severity;
+        fork.includeTimestamp = includeTimestamp;
+        fork.includeBullet = includeBullet;
+        fork.includeDebug = includeDebug;
+        fork.indentStep = indentStep;
+        fork.indent = getIndentationSpaces();
+        synchronized (storage) {
+            fork.storage.setMaximumSize(storage.getMaximumSize());
         }
+        return fork;
+    }
+
+    /**
+     * Moves the entries of a logger created with {@link #fork()} at the end of this logger.
+     * <p>
+     * The text is not copied, the log of the other logger is linked in this log and it is copied only when
+     * the output is read. The counters are moved too, the other logger is empty afterward.
+     *
+     * @param fork the logger
+     * @return self
+     */
+    public Logger merge(Logger fork) {
+        requireNonNull(fork);
+        if (fork == this) throw new IllegalArgumentException("A logger cannot be merged with itself");
+        fork.collect();
+        LoggerStorage segment;
+        synchronized (fork.storage) {
+            fork.drainPending();
+            segment = fork.storage.detach();
+        }
+        collect();
+        synchronized (storage) {
+            drainPending();
+            long offset = storage.getEnd();
+            storage.link(segment);
+            if (file != null) {
+                StringBuilder builder = new StringBuilder();
+                while (offset < storage.getEnd()) {
+                    offset = storage.read(offset, builder);
+                }
+                file.write(builder.toString());
+            }
+        }
+        debugCount.addAndGet(fork.debugCount.getAndSet(0));
+        infoCount.addAndGet(fork.infoCount.getAndSet(0));
+        warningCount.addAndGet(fork.warningCount.getAndSet(0));
+        errorCount.addAndGet(fork.errorCount.getAndSet(0));
+        touch();
         return this;
     }
 
@@ -586,17 +1142,13 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      */
     public Logger append(String text, boolean withSeparator, boolean spaceFirstLine) {
         requireNonNull(text);
-        synchronized (buffer) {
-            uncompress();
-            if (withSeparator) {
-                text = insertSpaces(text, 2, true, true, true);
-                spaceFirstLine = true;
-            }
-            text = insertSpaces(text, getIndentationSpaces(), false, false, spaceFirstLine);
-            doAppend(text, true);
-            infoCount++;
+        if (withSeparator) {
+            text = insertSpaces(text, 2, true, true, true);
+            spaceFirstLine = true;
         }
-
+        text = insertSpaces(text, getIndentationSpaces(), false, false, spaceFirstLine);
+        write(LoggerRecord.text(text + "\n"));
+        infoCount.incrementAndGet();
         return this;
     }
 
@@ -695,7 +1247,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @see java.text.MessageFormat
      */
     public Logger debug(String pattern, Object... arguments) {
-        return log(Severity.DEBUG, formatMessage(pattern, arguments));
+        return log(Severity.DEBUG, pattern, arguments, null);
     }
 
     /**
@@ -717,7 +1269,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @see java.text.MessageFormat
      */
     public Logger info(String pattern, Object... arguments) {
-        return log(Severity.INFO, formatMessage(pattern, arguments));
+        return log(Severity.INFO, pattern, arguments, null);
     }
 
     /**
@@ -739,7 +1291,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @see java.text.MessageFormat
      */
     public Logger warn(String pattern, Object... arguments) {
-        return log(Severity.WARN, formatMessage(pattern, arguments));
+        return log(Severity.WARN, pattern, arguments, null);
     }
 
 
@@ -762,7 +1314,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @see java.text.MessageFormat
      */
     public Logger error(String pattern, Object... arguments) {
-        return log(Severity.ERROR, formatMessage(pattern, arguments));
+        return log(Severity.ERROR, pattern, arguments, null);
     }
 
     /**
@@ -783,10 +1335,7 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      */
     public Logger log(String message) {
         if (message == null) message = EMPTY_STRING;
-        synchronized (buffer) {
-            uncompress();
-            doAppend(message, false);
-        }
+        write(LoggerRecord.text(message));
         return this;
     }
 
@@ -808,15 +1357,16 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
      * @return self
      */
     public Logger copyFrom(Logger logger) {
-        synchronized (buffer) {
-            debugCount = logger.debugCount;
-            infoCount = logger.infoCount;
-            warningCount = logger.warningCount;
-            errorCount = logger.errorCount;
+        synchronized (storage) {
+            drainPending();
+            debugCount.set(logger.getDebugCount());
+            infoCount.set(logger.getInfoCount());
+            warningCount.set(logger.getWarningCount());
+            errorCount.set(logger.getErrorCount());
             position = logger.position;
             severity = logger.severity;
-            buffer.setLength(0);
-            buffer.append(logger.getOutput());
+            storage.clear();
+            storage.append(logger.getOutput());
             indent = logger.indent;
             includeTimestamp = logger.includeTimestamp;
             includeBullet = logger.includeBullet;
@@ -826,127 +1376,278 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
     }
 
     /**
-     * Uncompresses the text, if required.
+     * Writes a record to the log.
      * <p>
-     * It should be executed under a synchronized block.
+     * Records are queued and rendered when the log is read (or when too many records are waiting). With
+     * concurrent writes, the record is queued without locking the storage. When the log is written to a file,
+     * the file sink is asked to render the queued records.
+     *
+     * @param record the record
      */
-    private void uncompress() {
-        if (bufferCompressed == null) return;
-        buffer.setLength(0);
-        buffer.append(getDecompressedBuffer());
-        bufferCompressed = null;
+    private void write(LoggerRecord record) {
+        if (concurrentWrites) {
+            pending.offer(record);
+            if (pendingCount.incrementAndGet() >= MAX_PENDING_ENTRIES) tryDrainPending();
+        } else {
+            synchronized (storage) {
+                pending.offer(record);
+                if (pendingCount.incrementAndGet() >= MAX_PENDING_ENTRIES) drainPending();
+            }
+        }
+        LoggerFileSink.Target target = file;
+        if (target != null && fileCollecting.compareAndSet(false, true)) target.collect(this::collectForFile);
+        touch();
     }
 
     /**
-     * Returns the buffer content if it was compressed.
-     *
-     * @return the buffer decompressed, null if it was not compressed
+     * Invoked by the file sink to render the queued records, which writes them to the file.
+     */
+    private void collectForFile() {
+        // cleared first, records queued while draining ask for another collection
+        fileCollecting.set(false);
+        synchronized (storage) {
+            drainPending();
+        }
+    }
+
+    /**
+     * Consolidates the queued entries, if no other thread does it already.
      */
-    private String getDecompressedBuffer() {
-        if (bufferCompressed == null) return null;
+    private void tryDrainPending() {
+        if (!draining.compareAndSet(false, true)) return;
         try {
-            return TextUtils.decompressText(new ByteArrayInputStream(bufferCompressed));
-        } catch (IOException e) {
-            return rethrowExceptionAndReturn(e);
+            synchronized (storage) {
+                drainPending();
+            }
+        } finally {
+            draining.set(false);
         }
     }
 
     /**
-     * Invoked under a lock on buffer to write a test to internal buffer and the file (if configured)
+     * Renders the queued records in the storage.
+     * <p>
+     * It should be executed under a synchronized block. The size of the rendered text is reported to the
+     * {@link LoggerManager} once per call, not once per record.
+     */
+    private void drainPending() {
+        if (pending.isEmpty()) return;
+        StringBuilder builder = new StringBuilder();
+        LoggerRecord record;
+        long length = 0;
+        while ((record = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            builder.setLength(0);
+            record.render(builder);
+            doAppend(builder);
+            length += builder.length();
+            if (events != null) events.add(record);
+        }
+        LoggerManager.get().written(2 * length);
+        if (fileText != null && fileText.length() > 0) {
+            if (file != null) file.write(fileText.toString());
+            fileText.setLength(0);
+        }
+    }
+
+    /**
+     * Invoked under a lock on storage to write a text to internal storage and the file (if configured)
      *
      * @param text the text
      */
-    private Logger doAppend(String text) {
-        return doAppend(text, false);
+    private void doAppend(CharSequence text) {
+        storage.append(text);
+        if (file != null) {
+            if (fileText == null) fileText = new StringBuilder();
+            fileText.append(text);
+        }
     }
 
     /**
-     * Invoked under a lock on buffer to write a test to internal buffer and the file (if configured)
+     * Adds a new entry in the log.
      *
-     * @param text    the text
-     * @param newLine <code>true</code> to append a new line at the end of the message, <code>false</code> otherwise
+     * @param message the message
      */
-    private Logger doAppend(String text, boolean newLine) {
-        buffer.append(text);
-        if (buffer.length() > maximumSize) buffer.setLength(0);
-        if (newLine) buffer.append('\n');
-        touch();
-        return this;
+    private Logger log(Severity severity, String message, Throwable throwable) {
+        return log(severity, message, null, throwable);
     }
 
     /**
      * Adds a new entry in the log.
+     * <p>
+     * The message is not formatted here, it is formatted only if the entry is rendered or forwarded to
+     * the application logger. An entry which is not accumulated and not forwarded costs only the counter update.
      *
-     * @param message the message
+     * @param severity  the severity
+     * @param pattern   the message pattern
+     * @param arguments the arguments, null if the pattern is the message
+     * @param throwable the failure, can be null
      */
-    private Logger log(Severity severity, String message, Throwable throwable) {
+    private Logger log(Severity severity, String pattern, Object[] arguments, Throwable throwable) {
         requireNonNull(severity);
-        if (message == null) message = EMPTY_STRING;
-        trackCounts(severity);
-        if (parent != null) parent.log(severity, message);
-        boolean log = severity != Severity.DEBUG || includeDebug;
-        if (log) doLog(severity, message, throwable);
-        if (logger != null) logWithLogger(severity, message, throwable);
+        if (pattern == null) pattern = EMPTY_STRING;
+        if (parent == null && logger == null && !isIncluded(severity)) {
+            trackCounts(severity);
+            return this;
+        }
+        log(new LoggerRecord(severity, System.currentTimeMillis(), pattern, arguments, throwable));
         return this;
     }
 
-    private void doLog(Severity severity, String message, Throwable throwable) {
-        synchronized (buffer) {
-            uncompress();
-            if (includeTimestamp) {
-                final String time = LOG_TIME_FORMATTER.format(LocalDateTime.now());
-                doAppend(time);
+    private void log(LoggerRecord record) {
+        Severity severity = record.getSeverity();
+        trackCounts(severity);
+        if (!children.isEmpty()) collect();
+        if (parent != null) {
+            if (batchedPropagation) {
+                for (Logger ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+                    ancestor.trackCounts(severity);
+                }
+                propagate(record.withoutThrowable());
+            } else {
+                parent.log(record.withoutThrowable());
             }
-            if (this.severity) doAppend(severity.name()).doAppend(" ");
-            doAppend(getIndentation());
-            if (includeBullet) doAppend(Glyph.BULLET);
-            if (throwable != null) message += ", with failure: " + getRootCauseDescription(throwable);
-            doAppend(message, true);
         }
+        if (isIncluded(severity)) write(record.withLayout(getIndentationSpaces(), getLayoutFlags()));
+        if (logger != null) logWithLogger(record);
     }
 
-    private void logWithLogger(Severity severity, String message, Throwable throwable) {
-        switch (severity) {
-            case DEBUG:
-                logger.debug(message);
-                break;
-            case INFO:
-                logger.info(message);
-                break;
-            case WARN:
-                logger.warn(message);
-                break;
-            case ERROR:
-                if (throwable != null) {
-                    logger.error(message, throwable);
-                } else {
-                    logger.error(message);
+    /**
+     * Receives a batch of records from a child logger.
+     * <p>
+     * The counters were already updated when the records were logged, so only the text is added.
+     *
+     * @param records the records
+     */
+    private void receive(List<LoggerRecord> records) {
+        int indent = getIndentationSpaces();
+        int flags = getLayoutFlags();
+        if (concurrentWrites) {
+            for (LoggerRecord record : records) {
+                if (isIncluded(record.getSeverity())) write(record.withLayout(indent, flags));
+            }
+        } else {
+            synchronized (storage) {
+                for (LoggerRecord record : records) {
+                    if (isIncluded(record.getSeverity())) write(record.withLayout(indent, flags));
                 }
-                break;
+            }
+        }
+        if (logger != null) {
+            for (LoggerRecord record : records) {
+                logWithLogger(record);
+            }
+        }
+        if (parent != null) {
+            if (batchedPropagation) {
+                for (LoggerRecord record : records) {
+                    propagate(record);
+                }
+            } else {
+                parent.receive(records);
+            }
         }
     }
 
+    /**
+     * Queues a record to be passed to the parent.
+     * <p>
+     * The first queued record registers this logger with its ancestors, so they can collect the records
+     * when their output is requested.
+     *
+     * @param record the record
+     */
+    private void propagate(LoggerRecord record) {
+        outgoing.offer(record);
+        if (outgoingCount.incrementAndGet() >= MAX_PROPAGATED_ENTRIES) {
+            publish();
+        } else {
+            schedule();
+        }
+    }
+
+    /**
+     * Registers this logger with the parent (and the parent with its parent), so the ancestors can find the
+     * queued records when their output is requested.
+     */
+    private void schedule() {
+        if (parent != null && scheduled.compareAndSet(false, true)) {
+            parent.children.offer(this);
+            parent.schedule();
+        }
+    }
+
+    /**
+     * Passes the queued records to the parent, in the order they were logged.
+     * <p>
+     * It should not be executed while holding the lock on storage, the parent locks its own storage.
+     */
+    private void publish() {
+        if (parent == null) return;
+        synchronized (outgoing) {
+            if (outgoing.isEmpty()) return;
+            List<LoggerRecord> records = new ArrayList<>(outgoingCount.get());
+            LoggerRecord record;
+            while ((record = outgoing.poll()) != null) {
+                outgoingCount.decrementAndGet();
+                records.add(record);
+            }
+            parent.receive(records);
+        }
+    }
+
+    /**
+     * Collects the records queued by the children (and their children) which use batched propagation.
+     * <p>
+     * It should not be executed while holding the lock on storage, the children lock the storage of their parents.
+     */
+    private void collect() {
+        Logger child;
+        while ((child = children.poll()) != null) {
+            child.scheduled.set(false);
+            child.collect();
+            child.publish();
+        }
+    }
+
+    private void logWithLogger(LoggerRecord record) {
+        if (!LoggerBridge.isEnabled(logger, record.getSeverity())) return;
+        if (bridge != null) {
+            bridge.submit(logger, record);
+        } else {
+            LoggerBridge.forward(logger, record);
+        }
+    }
+
+    private boolean isIncluded(Severity severity) {
+        return severity != Severity.DEBUG || includeDebug;
+    }
+
+    private int getLayoutFlags() {
+        int flags = 0;
+        if (includeTimestamp) flags |= LoggerRecord.TIMESTAMP;
+        if (severity) flags |= LoggerRecord.SEVERITY;
+        if (includeBullet) flags |= LoggerRecord.BULLET;
+        return flags;
+    }
+
     private void trackCounts(Severity severity) {
         switch (severity) {
             case DEBUG:
-                debugCount++;
+                debugCount.incrementAndGet();
                 break;
             case INFO:
-                infoCount++;
+                infoCount.incrementAndGet();
                 break;
             case WARN:
-                warningCount++;
+                warningCount.incrementAndGet();
                 break;
             case ERROR:
-                errorCount++;
+                errorCount.incrementAndGet();
                 break;
         }
     }
 
-    private String getIndentation() {
-        return StringUtils.getStringOfChar(' ', getIndentationSpaces());
-    }
-
     private int getIndentationSpaces() {
         return getDepth() * 3 + indent;
     }
@@ -961,6 +1662,10 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
         return getOutput();
     }
 
+    private Object writeReplace() {
+        return new Externalized(this);
+    }
+
     /**
      * An enum for logger severity.
      */
@@ -1098,6 +1803,73 @@ public final class Logger implements Identifiable<String>, Nameable, Descriptabl
         public static final String MAGNIFIER_RIGHT = "🔎";
     }
 
+    /**
+     * The serialized form of a logger, which holds the logger in the compact binary format.
+     */
+    private static final class Externalized implements Externalizable {
+
+        private static final long serialVersionUID = -4409214577383470337L;
+
+        private Logger logger;
+
+        public Externalized() {
+        }
+
+        private Externalized(Logger logger) {
+            this.logger = logger;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput output) throws IOException {
+            logger.encode(output, logger.serializedSettings);
+        }
+
+        @Override
+        public void readExternal(ObjectInput input) throws IOException {
+            logger = decode(input);
+        }
+
+        private Object readResolve() {
+            return logger;
+        }
+    }
+
+    /**
+     * A reader which copies the log one block at a time.
+     */
+    private static final class LogReader extends Reader {
+
+        private final Logger logger;
+        private final StringBuilder buffer = new StringBuilder();
+        private int index;
+        private long offset;
+
+        private LogReader(Logger logger) {
+            this.logger = logger;
+        }
+
+        @Override
+        public int read(char[] chars, int offset, int length) {
+            if (length == 0) return 0;
+            if (index == buffer.length()) {
+                buffer.setLength(0);
+                index = 0;
+                this.offset = logger.read(this.offset, buffer);
+                if (buffer.length() == 0) return -1;
+            }
+            int count = Math.min(length, buffer.length() - index);
+            buffer.getChars(index, index + count, chars, offset);
+            index += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            buffer.setLength(0);
+            index = 0;
+        }
+    }
+
     /**
      * A class which holds an entry, with a given severity, to be logged to the
      */
@@ -0,0 +1,335 @@
+package net.microfalx.lang;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.lang.System.currentTimeMillis;
+import static net.microfalx.lang.ArgumentUtils.requireBounded;
+import static net.microfalx.lang.ArgumentUtils.requireNonNull;
+
+/**
+ * Forwards the entries of a {@link Logger} to an application logger (SLF4J) asynchronously.
+ * <p>
+ * Entries are added to a bounded queue and a single thread forwards them, in batches, to the application loggers.
+ * The messages are formatted by the forwarding thread, so a slow appender never stalls the threads which log.
+ * When the queue is full, the {@link OverflowPolicy} decides what happens with a new entry.
+ * <p>
+ * Multiple loggers can share the same bridge, usually the {@link #getDefault() default} one.
+ */
+public final class LoggerBridge implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private static final int BATCH_SIZE = 500;
+    private static final Forward STOP = new Forward(null, null);
+    private static volatile LoggerBridge DEFAULT;
+
+    private final BlockingQueue<Forward> queue;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final OverflowPolicy overflowPolicy;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong forwardedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * Returns the bridge shared by all loggers, which blocks the caller when the queue is full.
+     *
+     * @return a non-null instance
+     */
+    public static LoggerBridge getDefault() {
+        if (DEFAULT == null) {
+            synchronized (LoggerBridge.class) {
+                if (DEFAULT == null) DEFAULT = create(DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+            }
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Creates a new bridge.
+     *
+     * @param capacity       the maximum number of entries waiting to be forwarded
+     * @param overflowPolicy the policy applied when the queue is full
+     * @return a non-null instance
+     */
+    public static LoggerBridge create(int capacity, OverflowPolicy overflowPolicy) {
+        return new LoggerBridge(capacity, overflowPolicy);
+    }
+
+    private LoggerBridge(int capacity, OverflowPolicy overflowPolicy) {
+        requireBounded(capacity, 1, Integer.MAX_VALUE);
+        requireNonNull(overflowPolicy);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.thread = new Thread(this::drain, "Logger Bridge");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns the policy applied when the queue is full.
+     *
+     * @return a non-null instance
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Returns the number of entries waiting to be forwarded.
+     *
+     * @return a positive integer
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of entries submitted to the bridge.
+     *
+     * @return a positive integer
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * Returns the number of entries forwarded to the application loggers.
+     *
+     * @return a positive integer
+     */
+    public long getForwardedCount() {
+        return forwardedCount.get();
+    }
+
+    /**
+     * Returns the number of entries dropped because the queue was full.
+     *
+     * @return a positive integer
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Waits for all the entries submitted so far to be forwarded (or dropped).
+     *
+     * @param timeout the maximum time to wait
+     * @return {@code true} if all entries were forwarded, {@code false} if the timeout was reached
+     */
+    public boolean flush(Duration timeout) {
+        requireNonNull(timeout);
+        long endTime = currentTimeMillis() + timeout.toMillis();
+        while (submittedCount.get() > forwardedCount.get() + droppedCount.get()) {
+            if (currentTimeMillis() > endTime) return false;
+            ThreadUtils.sleepMillis(1);
+        }
+        return true;
+    }
+
+    /**
+     * Stops the bridge after the entries already submitted are forwarded.
+     * <p>
+     * Entries submitted after the bridge is closed are forwarded by the caller.
+     */
+    @Override
+    public void close() {
+        if (this == DEFAULT) throw new IllegalStateException("The default bridge cannot be closed");
+        // waits for the entries being submitted, no entry is queued afterward
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        putUninterruptibly(STOP);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            ThreadUtils.interrupt();
+        }
+        // the thread is gone (or the caller was interrupted), forward what is left
+        List<Forward> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        forward(batch);
+    }
+
+    /**
+     * Submits an entry to be forwarded.
+     *
+     * @param logger the application logger
+     * @param record the record
+     */
+    void submit(org.slf4j.Logger logger, LoggerRecord record) {
+        lock.readLock().lock();
+        try {
+            if (!closed) {
+                enqueue(new Forward(logger, record));
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        forward(logger, record);
+    }
+
+    private void enqueue(Forward forward) {
+        submittedCount.incrementAndGet();
+        if (queue.offer(forward)) return;
+        switch (overflowPolicy) {
+            case DROP_DEBUG:
+                if (forward.record.getSeverity() == Logger.Severity.DEBUG) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+                put(forward);
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(forward)) {
+                    if (queue.poll() != null) droppedCount.incrementAndGet();
+                }
+                break;
+            default:
+                put(forward);
+        }
+    }
+
+    private void put(Forward forward) {
+        try {
+            queue.put(forward);
+        } catch (InterruptedException e) {
+            droppedCount.incrementAndGet();
+            ThreadUtils.interrupt();
+        }
+    }
+
+    private void putUninterruptibly(Forward forward) {
+        boolean interrupted = false;
+        for (; ; ) {
+            try {
+                queue.put(forward);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) ThreadUtils.interrupt();
+    }
+
+    private void drain() {
+        List<Forward> batch = new ArrayList<>(BATCH_SIZE);
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                // the bridge is stopped only by the stop entry
+                continue;
+            }
+            queue.drainTo(batch, BATCH_SIZE - batch.size());
+            stopped = batch.remove(STOP);
+            forward(batch);
+            batch.clear();
+        }
+    }
+
+    private void forward(List<Forward> batch) {
+        for (Forward forward : batch) {
+            try {
+                forward(forward.logger, forward.record);
+            } catch (Throwable e) {
+                // an appender failure should not stop the bridge
+            }
+            forwardedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns whether the application logger accepts entries with a given severity.
+     *
+     * @param logger   the application logger
+     * @param severity the severity
+     * @return {@code true} if enabled, {@code false} otherwise
+     */
+    static boolean isEnabled(org.slf4j.Logger logger, Logger.Severity severity) {
+        switch (severity) {
+            case DEBUG:
+                return logger.isDebugEnabled();
+            case INFO:
+                return logger.isInfoEnabled();
+            case WARN:
+                return logger.isWarnEnabled();
+            default:
+                return logger.isErrorEnabled();
+        }
+    }
+
+    /**
+     * Forwards a record to an application logger.
+     *
+     * @param logger the application logger
+     * @param record the record
+     */
+    static void forward(org.slf4j.Logger logger, LoggerRecord record) {
+        switch (record.getSeverity()) {
+            case DEBUG:
+                logger.debug(record.getMessage());
+                break;
+            case INFO:
+                logger.info(record.getMessage());
+                break;
+            case WARN:
+                logger.warn(record.getMessage());
+                break;
+            case ERROR:
+                if (record.getThrowable() != null) {
+                    logger.error(record.getMessage(), record.getThrowable());
+                } else {
+                    logger.error(record.getMessage());
+                }
+                break;
+        }
+    }
+
+    /**
+     * The policy applied when the queue is full.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * The caller waits for space in the queue.
+         */
+        BLOCK,
+
+        /**
+         * Entries with DEBUG level are dropped, the caller waits for space in the queue for other entries.
+         */
+        DROP_DEBUG,
+
+        /**
+         * The oldest entries are dropped to make space for the new entry.
+         */
+        DROP_OLDEST
+    }
+
+    private static final class Forward {
+
+        private final org.slf4j.Logger logger;
+        private final LoggerRecord record;
+
+        private Forward(org.slf4j.Logger logger, LoggerRecord record) {
+            this.logger = logger;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package net.microfalx.lang;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static net.microfalx.lang.ArgumentUtils.requireNonNull;
+
+/**
+ * Holds the {@link Logger loggers} attached to the current thread and carries them into tasks executed
+ * by other threads.
+ * <p>
+ * The loggers attached to a thread form an immutable chain (the last attached logger first), so attaching
+ * and detaching a logger does not need any synchronization and a task can capture the chain in constant time.
+ * Tasks wrapped by this class (or submitted to a wrapped executor) run with the loggers attached to the thread
+ * which created them (or without loggers, if none were attached), and the thread which executes them gets back
+ * its own loggers once the task is done.
+ */
+public final class LoggerContext {
+
+    private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+    private static final ThreadLocal<Logger> LAST = new ThreadLocal<>();
+
+    private LoggerContext() {
+    }
+
+    /**
+     * Returns the logger attached to the current thread.
+     *
+     * @return the logger, null if there is no logger attached
+     */
+    public static Logger get() {
+        Scope scope = SCOPE.get();
+        return scope != null ? scope.logger : null;
+    }
+
+    /**
+     * Wraps a task to run with the loggers attached to the current thread.
+     * <p>
+     * The task is always wrapped: if no logger is attached to the current thread, the task runs without loggers,
+     * even if the executing thread still has loggers attached by another task.
+     *
+     * @param task the task
+     * @return a non-null instance
+     */
+    public static Runnable wrap(Runnable task) {
+        requireNonNull(task);
+        Scope scope = SCOPE.get();
+        return () -> {
+            Scope previous = enter(scope);
+            try {
+                task.run();
+            } finally {
+                exit(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps a task to run with the loggers attached to the current thread.
+     *
+     * @param task the task
+     * @param <T>  the type of the result
+     * @return a non-null instance
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        requireNonNull(task);
+        Scope scope = SCOPE.get();
+        return () -> {
+            Scope previous = enter(scope);
+            try {
+                return task.call();
+            } finally {
+                exit(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps an executor, so every task runs with the loggers attached to the thread which submitted it.
+     *
+     * @param executor the executor
+     * @return a non-null instance
+     */
+    public static Executor wrap(Executor executor) {
+        requireNonNull(executor);
+        if (executor instanceof ContextExecutor || executor instanceof ContextExecutorService) return executor;
+        return new ContextExecutor(executor);
+    }
+
+    /**
+     * Wraps an executor service, so every task runs with the loggers attached to the thread which submitted it.
+     *
+     * @param executor the executor service
+     * @return a non-null instance
+     */
+    public static ExecutorService wrap(ExecutorService executor) {
+        requireNonNull(executor);
+        if (executor instanceof ContextExecutorService) return executor;
+        return new ContextExecutorService(executor);
+    }
+
+    /**
+     * Runs a task asynchronously, in the common pool, with the loggers attached to the current thread.
+     *
+     * @param task the task
+     * @return a non-null instance
+     * @see CompletableFuture#runAsync(Runnable)
+     */
+    public static CompletableFuture<Void> runAsync(Runnable task) {
+        return CompletableFuture.runAsync(wrap(task));
+    }
+
+    /**
+     * Runs a task asynchronously, with the loggers attached to the current thread.
+     *
+     * @param task     the task
+     * @param executor the executor
+     * @return a non-null instance
+     * @see CompletableFuture#runAsync(Runnable, Executor)
+     */
+    public static CompletableFuture<Void> runAsync(Runnable task, Executor executor) {
+        return CompletableFuture.runAsync(wrap(task), executor);
+    }
+
+    /**
+     * Computes a value asynchronously, in the common pool, with the loggers attached to the current thread.
+     *
+     * @param supplier the supplier
+     * @param <T>      the type of the result
+     * @return a non-null instance
+     * @see CompletableFuture#supplyAsync(Supplier)
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(wrapSupplier(supplier));
+    }
+
+    /**
+     * Computes a value asynchronously, with the loggers attached to the current thread.
+     *
+     * @param supplier the supplier
+     * @param executor the executor
+     * @param <T>      the type of the result
+     * @return a non-null instance
+     * @see CompletableFuture#supplyAsync(Supplier, Executor)
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        return CompletableFuture.supplyAsync(wrapSupplier(supplier), executor);
+    }
+
+    /**
+     * Attaches a logger to the current thread.
+     *
+     * @param logger the logger
+     */
+    static void push(Logger logger) {
+        SCOPE.set(new Scope(logger, SCOPE.get()));
+    }
+
+    /**
+     * Detaches the last attached logger from the current thread.
+     *
+     * @return the logger, null if there is no logger attached
+     */
+    static Logger pop() {
+        Scope scope = SCOPE.get();
+        if (scope == null) return null;
+        exit(scope.previous);
+        LAST.set(scope.logger);
+        return scope.logger;
+    }
+
+    /**
+     * Returns the last logger detached from the current thread.
+     *
+     * @return the logger, null if no logger was detached
+     */
+    static Logger getLast() {
+        return LAST.get();
+    }
+
+    /**
+     * Detaches all the loggers from the current thread.
+     */
+    static void clear() {
+        SCOPE.remove();
+    }
+
+    private static <T> Supplier<T> wrapSupplier(Supplier<T> supplier) {
+        requireNonNull(supplier);
+        Scope scope = SCOPE.get();
+        return () -> {
+            Scope previous = enter(scope);
+            try {
+                return supplier.get();
+            } finally {
+                exit(previous);
+            }
+        };
+    }
+
+    private static Scope enter(Scope scope) {
+        Scope previous = SCOPE.get();
+        if (scope == null) {
+            SCOPE.remove();
+        } else {
+            SCOPE.set(scope);
+        }
+        return previous;
+    }
+
+    private static void exit(Scope previous) {
+        if (previous == null) {
+            SCOPE.remove();
+        } else {
+            SCOPE.set(previous);
+        }
+    }
+
+    private static final class Scope {
+
+        private final Logger logger;
+        private final Scope previous;
+
+        private Scope(Logger logger, Scope previous) {
+            this.logger = logger;
+            this.previous = previous;
+        }
+    }
+
+    private static final class ContextExecutor implements Executor {
+
+        private final Executor executor;
+
+        private ContextExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            executor.execute(wrap(command));
+        }
+    }
+
+    private static final class ContextExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService executor;
+
+        private ContextExecutorService(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            executor.execute(wrap(command));
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return executor.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return executor.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return executor.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return executor.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package net.microfalx.lang;
+
+import java.time.LocalDateTime;
+import java.util.function.Predicate;
+
+import static net.microfalx.lang.ArgumentUtils.requireNonNull;
+import static net.microfalx.lang.TimeUtils.toLocalDateTime;
+
+/**
+ * An event (entry) of a {@link Logger}, passed to filters and {@link LoggerRenderer renderers}.
+ * <p>
+ * The event is a view over the compact storage of the logger, the same instance is reused for all the events of
+ * a logger while they are rendered, so it should not be retained.
+ */
+public final class LoggerEvent {
+
+    private final LoggerEvents events;
+    int index;
+
+    /**
+     * Returns a filter which accepts events with a given severity or higher (raw text is accepted too).
+     *
+     * @param severity the minimum severity
+     * @return a non-null instance
+     */
+    public static Predicate<LoggerEvent> atLeast(Logger.Severity severity) {
+        requireNonNull(severity);
+        return event -> event.isText() || event.getSeverity().compareTo(severity) >= 0;
+    }
+
+    /**
+     * Returns a filter which accepts events with an indentation within a range.
+     *
+     * @param minimum the minimum number of spaces, inclusive
+     * @param maximum the maximum number of spaces, inclusive
+     * @return a non-null instance
+     */
+    public static Predicate<LoggerEvent> indentBetween(int minimum, int maximum) {
+        return event -> event.getIndent() >= minimum && event.getIndent() <= maximum;
+    }
+
+    LoggerEvent(LoggerEvents events) {
+        this.events = events;
+    }
+
+    /**
+     * Returns the severity of the event.
+     *
+     * @return the severity, null if the event holds raw text
+     */
+    public Logger.Severity getSeverity() {
+        return events.getSeverity(index);
+    }
+
+    /**
+     * Returns whether the event holds raw text (appended to the log, without severity and layout).
+     *
+     * @return <code>true</code> if raw text, <code>false</code> otherwise
+     */
+    public boolean isText() {
+        return getSeverity() == null;
+    }
+
+    /**
+     * Returns the time when the event was logged.
+     *
+     * @return a non-null instance
+     */
+    public LocalDateTime getTimestamp() {
+        return toLocalDateTime(getTimestampMillis());
+    }
+
+    /**
+     * Returns the time when the event was logged, in milliseconds.
+     *
+     * @return a positive integer
+     */
+    public long getTimestampMillis() {
+        return events.getTimestamp(index);
+    }
+
+    /**
+     * Returns the number of spaces in front of the message.
+     *
+     * @return a positive integer
+     */
+    public int getIndent() {
+        return events.getIndent(index);
+    }
+
+    /**
+     * Returns whether the logger had timestamps enabled when the event was logged.
+     *
+     * @return <code>true</code> to show the timestamp, <code>false</code> otherwise
+     */
+    public boolean hasTimestamp() {
+        return (events.getFlags(index) & LoggerRecord.TIMESTAMP) != 0;
+    }
+
+    /**
+     * Returns whether the logger had severities enabled when the event was logged.
+     *
+     * @return <code>true</code> to show the severity, <code>false</code> otherwise
+     */
+    public boolean hasSeverity() {
+        return (events.getFlags(index) & LoggerRecord.SEVERITY) != 0;
+    }
+
+    /**
+     * Returns whether the logger had bullets enabled when the event was logged.
+     *
+     * @return <code>true</code> to show a bullet, <code>false</code> otherwise
+     */
+    public boolean hasBullet() {
+        return (events.getFlags(index) & LoggerRecord.BULLET) != 0;
+    }
+
+    /**
+     * Returns the message.
+     *
+     * @return a non-null instance
+     */
+    public String getMessage() {
+        return events.getMessage(index);
+    }
+
+    /**
+     * Returns the description of the failure logged with the event.
+     *
+     * @return the description, null if there is no failure
+     */
+    public String getFailure() {
+        return events.getFailure(index);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        LoggerRenderer.text().render(this, builder);
+        return builder.toString();
+    }
+}
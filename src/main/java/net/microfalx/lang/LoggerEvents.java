@@ -0,0 +1,244 @@
+package net.microfalx.lang;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import static net.microfalx.lang.ArgumentUtils.requireBounded;
+import static net.microfalx.lang.ExceptionUtils.getRootCauseDescription;
+import static net.microfalx.lang.LoggerFormat.*;
+
+/**
+ * Holds the events of a {@link Logger} in a compact form.
+ * <p>
+ * Each event uses two slots in a packed <code>long[]</code>: the timestamp and the layout (severity, layout flags
+ * and indentation). The messages are kept in a parallel table, the failures in a second table which is created only
+ * if an event has a failure. When the messages go over the maximum size, the oldest events are discarded.
+ */
+final class LoggerEvents {
+
+    private static final int SLOTS = 2;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final int SEVERITY_BITS = 3;
+    private static final int FLAGS_BITS = 3;
+    private static final int SEVERITY_MASK = (1 << SEVERITY_BITS) - 1;
+    private static final int FLAGS_MASK = (1 << FLAGS_BITS) - 1;
+
+    private static final Logger.Severity[] SEVERITIES = Logger.Severity.values();
+
+    private long[] data = new long[INITIAL_CAPACITY * SLOTS];
+    private String[] messages = new String[INITIAL_CAPACITY];
+    private String[] failures;
+    private int head;
+    private int tail;
+    private long first;
+    private long length;
+    private int maximumSize;
+
+    LoggerEvents(int maximumSize) {
+        setMaximumSize(maximumSize);
+    }
+
+    /**
+     * Changes the maximum number of characters retained in messages.
+     *
+     * @param maximumSize the maximum number of characters
+     */
+    void setMaximumSize(int maximumSize) {
+        requireBounded(maximumSize, 1, Integer.MAX_VALUE);
+        this.maximumSize = maximumSize;
+        evict();
+    }
+
+    /**
+     * Returns the number of events retained.
+     *
+     * @return a positive integer
+     */
+    int size() {
+        return tail - head;
+    }
+
+    /**
+     * Returns the absolute position after the last event.
+     *
+     * @return a positive integer
+     */
+    long getEnd() {
+        return first + size();
+    }
+
+    /**
+     * Adds an event.
+     *
+     * @param record the record which holds the event
+     */
+    void add(LoggerRecord record) {
+        if (tail == messages.length) grow();
+        int index = tail++;
+        String message = record.getMessage();
+        data[index * SLOTS] = record.getTimestamp();
+        data[index * SLOTS + 1] = pack(record.getSeverity(), record.getFlags(), record.getIndent());
+        messages[index] = message;
+        if (record.getThrowable() != null) {
+            if (failures == null) failures = new String[messages.length];
+            failures[index] = getRootCauseDescription(record.getThrowable());
+        }
+        length += message.length();
+        evict();
+    }
+
+    /**
+     * Discards all the events added after a given absolute position.
+     *
+     * @param position the absolute position
+     */
+    void truncate(long position) {
+        while (getEnd() > position && tail > head) {
+            remove(--tail);
+        }
+    }
+
+    /**
+     * Removes all the events.
+     */
+    void clear() {
+        first = getEnd();
+        Arrays.fill(messages, head, tail, null);
+        if (failures != null) Arrays.fill(failures, head, tail, null);
+        head = tail = 0;
+        length = 0;
+    }
+
+    /**
+     * Passes the events accepted by a filter to a renderer.
+     *
+     * @param renderer the renderer
+     * @param filter   the filter
+     * @param builder  the builder which receives the text
+     */
+    void render(LoggerRenderer renderer, Predicate<LoggerEvent> filter, StringBuilder builder) {
+        LoggerEvent event = new LoggerEvent(this);
+        renderer.start(builder);
+        for (int index = head; index < tail; index++) {
+            event.index = index;
+            if (filter.test(event)) renderer.render(event, builder);
+        }
+        renderer.end(builder);
+    }
+
+    /**
+     * Writes the events in the compact binary format of the logger.
+     * <p>
+     * Timestamps are written as the difference from the previous event, so most of them take one or two bytes.
+     *
+     * @param output the output
+     */
+    void encode(DataOutput output) throws IOException {
+        writeVarLong(output, maximumSize);
+        writeVarLong(output, first);
+        writeVarLong(output, size());
+        long timestamp = 0;
+        for (int index = head; index < tail; index++) {
+            writeSignedVarLong(output, getTimestamp(index) - timestamp);
+            timestamp = getTimestamp(index);
+            writeVarLong(output, data[index * SLOTS + 1]);
+            writeString(output, getMessage(index));
+            writeString(output, getFailure(index));
+        }
+    }
+
+    /**
+     * Replaces the events with the events read from the compact binary format of the logger.
+     *
+     * @param input   the input
+     * @param version the version of the format
+     */
+    void decode(DataInput input, int version) throws IOException {
+        clear();
+        setMaximumSize(readVarInt(input));
+        first = readVarLong(input);
+        int size = readVarInt(input);
+        long timestamp = 0;
+        for (int i = 0; i < size; i++) {
+            if (tail == messages.length) grow();
+            int index = tail++;
+            timestamp += readSignedVarLong(input);
+            data[index * SLOTS] = timestamp;
+            data[index * SLOTS + 1] = readVarLong(input);
+            String message = readString(input);
+            if (message == null) throw new StreamCorruptedException("Missing message");
+            messages[index] = message;
+            String failure = readString(input);
+            if (failure != null) {
+                if (failures == null) failures = new String[messages.length];
+                failures[index] = failure;
+            }
+            length += message.length();
+        }
+    }
+
+    long getTimestamp(int index) {
+        return data[index * SLOTS];
+    }
+
+    Logger.Severity getSeverity(int index) {
+        int severity = (int) (data[index * SLOTS + 1] & SEVERITY_MASK);
+        return severity == 0 ? null : SEVERITIES[severity - 1];
+    }
+
+    int getFlags(int index) {
+        return (int) ((data[index * SLOTS + 1] >>> SEVERITY_BITS) & FLAGS_MASK);
+    }
+
+    int getIndent(int index) {
+        return (int) (data[index * SLOTS + 1] >>> (SEVERITY_BITS + FLAGS_BITS));
+    }
+
+    String getMessage(int index) {
+        return messages[index];
+    }
+
+    String getFailure(int index) {
+        return failures != null ? failures[index] : null;
+    }
+
+    private static long pack(Logger.Severity severity, int flags, int indent) {
+        long severityBits = severity == null ? 0 : severity.ordinal() + 1;
+        return severityBits | (long) (flags & FLAGS_MASK) << SEVERITY_BITS | (long) indent << (SEVERITY_BITS + FLAGS_BITS);
+    }
+
+    private void evict() {
+        while (length > maximumSize && size() > 1) {
+            remove(head++);
+            first++;
+        }
+    }
+
+    private void remove(int index) {
+        length -= messages[index].length();
+        messages[index] = null;
+        if (failures != null) failures[index] = null;
+    }
+
+    private void grow() {
+        int size = size();
+        int capacity = size * 2 > messages.length ? messages.length * 2 : messages.length;
+        long[] newData = capacity == messages.length ? data : new long[capacity * SLOTS];
+        String[] newMessages = capacity == messages.length ? messages : new String[capacity];
+        System.arraycopy(data, head * SLOTS, newData, 0, size * SLOTS);
+        System.arraycopy(messages, head, newMessages, 0, size);
+        if (newMessages == messages) Arrays.fill(messages, size, tail, null);
+        if (failures != null) {
+            String[] newFailures = capacity == failures.length ? failures : new String[capacity];
+            System.arraycopy(failures, head, newFailures, 0, size);
+            if (newFailures == failures) Arrays.fill(failures, size, tail, null);
+            failures = newFailures;
+        }
+        data = newData;
+        messages = newMessages;
+        head = 0;
+        tail = size;
+    }
+}
@@ -0,0 +1,457 @@
+package net.microfalx.lang;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.System.currentTimeMillis;
+import static net.microfalx.lang.ArgumentUtils.requireBounded;
+import static net.microfalx.lang.ArgumentUtils.requireNonNull;
+
+/**
+ * Writes the entries of {@link Logger loggers} to files, asynchronously.
+ * <p>
+ * The threads which log only queue their entries and ask the sink to collect them. A single thread renders the
+ * entries of the loggers which asked, groups the text by file and writes each group with one call to the file channel
+ * (through a large direct buffer).
+ * The files are synchronized with the disk periodically (group commit), when the sink is {@link #flush(Duration)
+ * flushed} and when it is closed. When too much text is waiting, new text is dropped, the threads which log never
+ * wait for the disk.
+ * <p>
+ * Multiple loggers can share the same sink, usually the {@link #getDefault() default} one, which is flushed when
+ * the JVM exits. Files are opened when the first entry is written and closed after a while, if nothing is written
+ * to them. Closed files are forgotten, so a sink used for many short-lived files (one per job) does not grow.
+ */
+public final class LoggerFileSink implements AutoCloseable {
+
+    public static final long DEFAULT_CAPACITY = 32 * 1024 * 1024;
+    public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofSeconds(1);
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long MAX_WAIT = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(1);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+    private static volatile LoggerFileSink DEFAULT;
+
+    private final ConcurrentLinkedQueue<Write> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Runnable> collectors = new ConcurrentLinkedQueue<>();
+    private final Map<File, Target> targets = new ConcurrentHashMap<>();
+    private final long capacity;
+    private final Duration syncInterval;
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile boolean syncRequested;
+
+    private final AtomicLong queuedLength = new AtomicLong();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong syncCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private volatile long syncedCount;
+
+    /**
+     * Returns the sink shared by all loggers, which synchronizes the files every second.
+     *
+     * @return a non-null instance
+     */
+    public static LoggerFileSink getDefault() {
+        if (DEFAULT == null) {
+            synchronized (LoggerFileSink.class) {
+                if (DEFAULT == null) {
+                    LoggerFileSink sink = create(DEFAULT_CAPACITY, DEFAULT_SYNC_INTERVAL);
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> sink.flush(SHUTDOWN_TIMEOUT),
+                            "Logger File Sink Shutdown"));
+                    DEFAULT = sink;
+                }
+            }
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Creates a new sink.
+     *
+     * @param capacity     the maximum number of characters waiting to be written
+     * @param syncInterval the interval between synchronizations with the disk, zero to synchronize after every write
+     * @return a non-null instance
+     */
+    public static LoggerFileSink create(long capacity, Duration syncInterval) {
+        return new LoggerFileSink(capacity, syncInterval);
+    }
+
+    private LoggerFileSink(long capacity, Duration syncInterval) {
+        requireBounded(capacity, 1, Long.MAX_VALUE);
+        requireNonNull(syncInterval);
+        this.capacity = capacity;
+        this.syncInterval = syncInterval;
+        this.thread = new Thread(this::run, "Logger File Sink");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns the interval between synchronizations with the disk.
+     *
+     * @return a non-null instance
+     */
+    public Duration getSyncInterval() {
+        return syncInterval;
+    }
+
+    /**
+     * Returns the number of characters waiting to be written.
+     *
+     * @return a positive integer
+     */
+    public long getQueuedLength() {
+        return queuedLength.get();
+    }
+
+    /**
+     * Returns the number of writes submitted to the sink.
+     *
+     * @return a positive integer
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * Returns the number of writes dropped because too much text was waiting or the sink was closed.
+     *
+     * @return a positive integer
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the number of writes which failed with an I/O error.
+     *
+     * @return a positive integer
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Returns the number of bytes written to files.
+     *
+     * @return a positive integer
+     */
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    /**
+     * Returns the number of times the files were synchronized with the disk.
+     *
+     * @return a positive integer
+     */
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * Waits for all the text submitted so far to be written and synchronized with the disk.
+     *
+     * @param timeout the maximum time to wait
+     * @return {@code true} if all the text was written, {@code false} if the timeout was reached
+     */
+    public boolean flush(Duration timeout) {
+        requireNonNull(timeout);
+        long submitted = submittedCount.get();
+        long endTime = currentTimeMillis() + timeout.toMillis();
+        syncRequested = true;
+        LockSupport.unpark(thread);
+        while (syncedCount < submitted) {
+            if (!thread.isAlive() || currentTimeMillis() > endTime) return false;
+            ThreadUtils.sleepMillis(1);
+        }
+        return true;
+    }
+
+    /**
+     * Writes the text already submitted, synchronizes the files with the disk and closes them.
+     * <p>
+     * Text submitted after the sink is closed is dropped.
+     */
+    @Override
+    public void close() {
+        if (this == DEFAULT) throw new IllegalStateException("The default file sink cannot be closed");
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            ThreadUtils.interrupt();
+        }
+    }
+
+    /**
+     * Returns the target which writes to a file.
+     *
+     * @param file the file
+     * @return a non-null instance
+     */
+    Target getTarget(File file) {
+        requireNonNull(file);
+        return targets.computeIfAbsent(file.getAbsoluteFile(), f -> new Target(this, f));
+    }
+
+    /**
+     * Asks the sink to collect the entries queued by a logger.
+     * <p>
+     * The collector renders the entries and writes them with {@link Target#write(String)}; it runs on the thread of
+     * the sink, before the queued text is written.
+     *
+     * @param collector the collector
+     */
+    void collect(Runnable collector) {
+        submittedCount.incrementAndGet();
+        if (closed) {
+            droppedCount.incrementAndGet();
+            processedCount.incrementAndGet();
+            return;
+        }
+        boolean wasEmpty = collectors.isEmpty();
+        collectors.offer(collector);
+        if (wasEmpty) LockSupport.unpark(thread);
+    }
+
+    /**
+     * Queues a text to be written to a file.
+     *
+     * @param target the target
+     * @param text   the text
+     */
+    void submit(Target target, String text) {
+        submittedCount.incrementAndGet();
+        if (closed || queuedLength.get() + text.length() > capacity) {
+            droppedCount.incrementAndGet();
+            processedCount.incrementAndGet();
+            return;
+        }
+        boolean wasEmpty = queuedLength.getAndAdd(text.length()) == 0;
+        queue.offer(new Write(target, text));
+        if (wasEmpty) LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        List<Target> pending = new ArrayList<>();
+        long lastSync = currentTimeMillis();
+        for (; ; ) {
+            boolean stopping = closed;
+            long count = runCollectors();
+            count += drain(pending);
+            for (Target target : pending) {
+                target.write(encoder, buffer);
+            }
+            pending.clear();
+            processedCount.addAndGet(count);
+            long now = currentTimeMillis();
+            if (syncRequested || stopping || now - lastSync >= syncInterval.toMillis()) {
+                syncRequested = false;
+                long processed = processedCount.get();
+                sync();
+                syncedCount = processed;
+                lastSync = now;
+            }
+            if (stopping && queue.isEmpty() && collectors.isEmpty()) break;
+            closeIdle(now);
+            if (queue.isEmpty() && collectors.isEmpty()) LockSupport.parkNanos(this, Math.min(MAX_WAIT, Math.max(1, syncInterval.toNanos())));
+        }
+        for (Target target : targets.values()) {
+            target.close();
+        }
+    }
+
+    private long runCollectors() {
+        long count = 0;
+        Runnable collector;
+        while ((collector = collectors.poll()) != null) {
+            try {
+                collector.run();
+            } catch (Exception e) {
+                failedCount.incrementAndGet();
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private long drain(List<Target> pending) {
+        long count = 0;
+        Write write;
+        while ((write = queue.poll()) != null) {
+            queuedLength.addAndGet(-write.text.length());
+            Target target = write.target.removed ? restore(write.target) : write.target;
+            if (target.texts.isEmpty()) pending.add(target);
+            target.texts.add(write.text);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the target which writes to the file of a target closed as idle (still referenced by a logger).
+     *
+     * @param target the removed target
+     * @return the target registered for the file, which is the removed target if no other was created meanwhile
+     */
+    private Target restore(Target target) {
+        Target current = targets.putIfAbsent(target.file, target);
+        if (current != null) return current;
+        target.removed = false;
+        return target;
+    }
+
+    private void sync() {
+        for (Target target : targets.values()) {
+            target.sync();
+        }
+    }
+
+    private void closeIdle(long now) {
+        for (Target target : targets.values()) {
+            if (target.dirty || !target.texts.isEmpty() || now - target.lastWrite <= IDLE_TIMEOUT) continue;
+            // loggers can still reference the target, their text goes to the target registered for the file
+            target.close();
+            target.removed = true;
+            targets.remove(target.file, target);
+        }
+    }
+
+    /**
+     * A file written by the sink.
+     * <p>
+     * Everything except {@link #write(String)} and {@link #collect(Runnable)} is accessed only by the thread of the sink.
+     */
+    static final class Target {
+
+        private final LoggerFileSink sink;
+        private final File file;
+        private final List<String> texts = new ArrayList<>();
+        private FileChannel channel;
+        private boolean dirty;
+        private boolean removed;
+        private long lastWrite = currentTimeMillis();
+
+        private Target(LoggerFileSink sink, File file) {
+            this.sink = sink;
+            this.file = file;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        /**
+         * Queues a text to be written to the file.
+         *
+         * @param text the text
+         */
+        void write(String text) {
+            sink.submit(this, text);
+        }
+
+        /**
+         * Asks the sink to collect the entries of a logger which writes to the file.
+         *
+         * @param collector the collector
+         */
+        void collect(Runnable collector) {
+            sink.collect(collector);
+        }
+
+        private void write(CharsetEncoder encoder, ByteBuffer buffer) {
+            try {
+                if (channel == null) {
+                    FileUtils.validateDirectoryExists(file.getParentFile());
+                    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                            StandardOpenOption.APPEND);
+                }
+                buffer.clear();
+                for (String text : texts) {
+                    CharBuffer chars = CharBuffer.wrap(text);
+                    encoder.reset();
+                    for (; ; ) {
+                        CoderResult result = encoder.encode(chars, buffer, true);
+                        if (result.isOverflow()) {
+                            flush(buffer);
+                        } else {
+                            break;
+                        }
+                    }
+                }
+                flush(buffer);
+                dirty = true;
+                lastWrite = currentTimeMillis();
+            } catch (IOException e) {
+                sink.failedCount.addAndGet(texts.size());
+                close();
+            } finally {
+                texts.clear();
+            }
+        }
+
+        private void flush(ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                sink.writtenBytes.addAndGet(channel.write(buffer));
+            }
+            buffer.clear();
+        }
+
+        private void sync() {
+            if (channel == null || !dirty) return;
+            try {
+                channel.force(false);
+                sink.syncCount.incrementAndGet();
+            } catch (IOException e) {
+                sink.failedCount.incrementAndGet();
+            }
+            dirty = false;
+        }
+
+        private void close() {
+            if (channel == null) return;
+            sync();
+            IOUtils.closeQuietly(channel);
+            channel = null;
+        }
+    }
+
+    private static final class Write {
+
+        private final Target target;
+        private final String text;
+
+        private Write(Target target, String text) {
+            this.target = target;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package net.microfalx.lang;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Holds the primitives of the compact binary format of a {@link Logger}.
+ * <p>
+ * Numbers are written as variable length integers (7 bits per byte, the high bit marks that more bytes follow),
+ * so small counters and lengths take one or two bytes. Strings and byte arrays are written with their length
+ * in front.
+ */
+final class LoggerFormat {
+
+    /**
+     * The first version of the format.
+     */
+    static final int VERSION_1 = 1;
+
+    /**
+     * The version written by this release.
+     */
+    static final int VERSION = VERSION_1;
+
+    private static final int MAX_VARLONG_BYTES = 10;
+
+    private LoggerFormat() {
+    }
+
+    /**
+     * Validates the version of the format and returns it.
+     *
+     * @param version the version read from the stream
+     * @return the version
+     * @throws IOException if the version is not supported by this release
+     */
+    static int requireVersion(int version) throws IOException {
+        if (version < VERSION_1 || version > VERSION) {
+            throw new StreamCorruptedException("Unsupported logger format version " + version
+                    + ", expected " + VERSION_1 + " to " + VERSION);
+        }
+        return version;
+    }
+
+    /**
+     * Writes a positive number as a variable length integer.
+     *
+     * @param output the output
+     * @param value  the value
+     */
+    static void writeVarLong(DataOutput output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    /**
+     * Reads a variable length integer.
+     *
+     * @param input the input
+     * @return the value
+     */
+    static long readVarLong(DataInput input) throws IOException {
+        long value = 0;
+        for (int i = 0; i < MAX_VARLONG_BYTES; i++) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new StreamCorruptedException("Malformed variable length integer");
+    }
+
+    /**
+     * Reads a variable length integer which must fit in an integer.
+     *
+     * @param input the input
+     * @return the value
+     */
+    static int readVarInt(DataInput input) throws IOException {
+        long value = readVarLong(input);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("Integer out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Writes a number, which can be negative, as a variable length integer (small negative numbers
+     * take as few bytes as small positive numbers).
+     *
+     * @param output the output
+     * @param value  the value
+     */
+    static void writeSignedVarLong(DataOutput output, long value) throws IOException {
+        writeVarLong(output, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Reads a variable length integer written with {@link #writeSignedVarLong(DataOutput, long)}.
+     *
+     * @param input the input
+     * @return the value
+     */
+    static long readSignedVarLong(DataInput input) throws IOException {
+        long value = readVarLong(input);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes an array of bytes, with its length in front.
+     *
+     * @param output the output
+     * @param bytes  the bytes
+     */
+    static void writeBytes(DataOutput output, byte[] bytes) throws IOException {
+        writeVarLong(output, bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads an array of bytes written with {@link #writeBytes(DataOutput, byte[])}.
+     *
+     * @param input the input
+     * @return a non-null instance
+     */
+    static byte[] readBytes(DataInput input) throws IOException {
+        byte[] bytes = new byte[readVarInt(input)];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes a string (UTF-8), with its length in front.
+     * <p>
+     * Unlike {@link DataOutput#writeUTF(String)}, the string can be longer than 64K.
+     *
+     * @param output the output
+     * @param value  the string, can be null
+     */
+    static void writeString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(output, 0);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(output, bytes.length + 1L);
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a string written with {@link #writeString(DataOutput, String)}.
+     *
+     * @param input the input
+     * @return the string, can be null
+     */
+    static String readString(DataInput input) throws IOException {
+        int length = readVarInt(input);
+        if (length == 0) return null;
+        byte[] bytes = new byte[length - 1];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,314 @@
+package net.microfalx.lang;
+
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.System.currentTimeMillis;
+import static net.microfalx.lang.ArgumentUtils.requireBounded;
+import static net.microfalx.lang.ArgumentUtils.requireNonNull;
+import static net.microfalx.lang.ExceptionUtils.getRootCauseDescription;
+
+/**
+ * Keeps track of all live {@link Logger loggers} and bounds the memory used by them together.
+ * <p>
+ * Loggers register themselves when created and are released as soon as they are not referenced anymore. When the
+ * memory used by all loggers goes over the {@link #getMaximumMemory() maximum memory}, the least recently used
+ * loggers are compressed first and, if this is not enough, their oldest entries are evicted (moved to disk
+ * for loggers with tiered storage). Loggers which were not used for a while are compressed even if the memory
+ * is under the limit.
+ * <p>
+ * The checks are done by a background thread, so the threads which log are never delayed.
+ */
+public final class LoggerManager {
+
+    private static final long CHECK_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+    private static final int CHECK_RATIO = 16;
+
+    private static volatile LoggerManager INSTANCE;
+
+    private final Map<String, LoggerReference> loggers = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Logger> queue = new ReferenceQueue<>();
+    private final Thread thread;
+
+    private volatile long maximumMemory = Runtime.getRuntime().maxMemory() / 4;
+    private volatile Duration idleTimeout = Duration.ofMinutes(5);
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong compressionCount = new AtomicLong();
+    private final AtomicLong trimCount = new AtomicLong();
+    private final AtomicLong releasedMemory = new AtomicLong();
+
+    /**
+     * Returns the manager.
+     *
+     * @return a non-null instance
+     */
+    public static LoggerManager get() {
+        if (INSTANCE == null) {
+            synchronized (LoggerManager.class) {
+                if (INSTANCE == null) INSTANCE = new LoggerManager();
+            }
+        }
+        return INSTANCE;
+    }
+
+    private LoggerManager() {
+        this.thread = new Thread(this::check, "Logger Manager");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns the maximum number of bytes used by all loggers (default a quarter of the maximum heap).
+     *
+     * @return a positive integer
+     */
+    public long getMaximumMemory() {
+        return maximumMemory;
+    }
+
+    /**
+     * Changes the maximum number of bytes used by all loggers.
+     *
+     * @param maximumMemory the maximum number of bytes
+     * @return self
+     */
+    public LoggerManager setMaximumMemory(long maximumMemory) {
+        requireBounded(maximumMemory, 0, Long.MAX_VALUE);
+        this.maximumMemory = maximumMemory;
+        LockSupport.unpark(thread);
+        return this;
+    }
+
+    /**
+     * Returns the time after which a logger which is not used anymore is compressed (default 5 minutes).
+     *
+     * @return a non-null instance
+     */
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Changes the time after which a logger which is not used anymore is compressed.
+     *
+     * @param idleTimeout the timeout
+     * @return self
+     */
+    public LoggerManager setIdleTimeout(Duration idleTimeout) {
+        requireNonNull(idleTimeout);
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    /**
+     * Returns the live loggers.
+     *
+     * @return a non-null instance
+     */
+    public Collection<Logger> getLoggers() {
+        Collection<Logger> result = new ArrayList<>(loggers.size());
+        for (LoggerReference reference : loggers.values()) {
+            Logger logger = reference.get();
+            if (logger != null) result.add(logger);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of live loggers.
+     *
+     * @return a positive integer
+     */
+    public int getLoggerCount() {
+        return loggers.size();
+    }
+
+    /**
+     * Returns the number of bytes used in memory by all loggers.
+     *
+     * @return a positive integer
+     */
+    public long getMemorySize() {
+        long size = 0;
+        for (Logger logger : getLoggers()) {
+            size += logger.getMemorySize();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of characters retained in memory by all loggers.
+     *
+     * @return a positive integer
+     */
+    public long getLength() {
+        long length = 0;
+        for (Logger logger : getLoggers()) {
+            length += logger.getLength();
+        }
+        return length;
+    }
+
+    /**
+     * Returns the ratio between the size of the text retained in memory by all loggers and the memory used.
+     *
+     * @return a positive number, 1 if nothing is compressed
+     */
+    public float getCompressionRatio() {
+        long length = 0;
+        long size = 0;
+        for (Logger logger : getLoggers()) {
+            length += logger.getLength();
+            size += logger.getMemorySize();
+        }
+        return size == 0 ? 1 : (float) (2 * length) / size;
+    }
+
+    /**
+     * Returns the number of loggers compressed by the manager.
+     *
+     * @return a positive integer
+     */
+    public long getCompressionCount() {
+        return compressionCount.get();
+    }
+
+    /**
+     * Returns the number of times the oldest entries of a logger were evicted to stay under the maximum memory.
+     *
+     * @return a positive integer
+     */
+    public long getTrimCount() {
+        return trimCount.get();
+    }
+
+    /**
+     * Returns the number of bytes released by evicting the oldest entries.
+     *
+     * @return a positive integer
+     */
+    public long getReleasedMemory() {
+        return releasedMemory.get();
+    }
+
+    /**
+     * Compresses the idle loggers and, if the memory used by all loggers is over the limit, compresses
+     * (and evicts the oldest entries of) the least recently used loggers.
+     * <p>
+     * The manager does this periodically, the method can be called to apply the limits right away.
+     */
+    public synchronized void enforce() {
+        written.set(0);
+        releaseReferences();
+        // the access time changes while the loggers are used, the sort works on a copy
+        List<Usage> usages = new ArrayList<>();
+        for (Logger logger : getLoggers()) {
+            usages.add(new Usage(logger, logger.getLastAccessTime()));
+        }
+        usages.sort(Comparator.comparingLong(usage -> usage.lastAccess));
+        long idleTime = currentTimeMillis() - idleTimeout.toMillis();
+        long size = 0;
+        for (Usage usage : usages) {
+            Logger logger = usage.logger;
+            if (usage.lastAccess > 0 && usage.lastAccess < idleTime && !logger.isCompressed()) compress(logger);
+            size += logger.getMemorySize();
+        }
+        long maximumMemory = this.maximumMemory;
+        for (Usage usage : usages) {
+            if (size <= maximumMemory) return;
+            if (!usage.logger.isCompressed()) size -= compress(usage.logger);
+        }
+        for (Usage usage : usages) {
+            if (size <= maximumMemory) return;
+            long released = usage.logger.trim(size - maximumMemory);
+            if (released > 0) {
+                trimCount.incrementAndGet();
+                releasedMemory.addAndGet(released);
+                size -= released;
+            }
+        }
+    }
+
+    /**
+     * Registers a logger.
+     *
+     * @param logger the logger
+     */
+    void register(Logger logger) {
+        loggers.put(logger.getId(), new LoggerReference(logger, queue));
+    }
+
+    /**
+     * Invoked when a logger adds text to its storage, to check the limits sooner if a lot of text is added.
+     *
+     * @param size the number of bytes
+     */
+    void written(long size) {
+        if (written.addAndGet(size) > maximumMemory / CHECK_RATIO) LockSupport.unpark(thread);
+    }
+
+    private long compress(Logger logger) {
+        long size = logger.getMemorySize();
+        logger.compress();
+        compressionCount.incrementAndGet();
+        return size - logger.getMemorySize();
+    }
+
+    private void releaseReferences() {
+        Reference<? extends Logger> reference;
+        while ((reference = queue.poll()) != null) {
+            loggers.remove(((LoggerReference) reference).id);
+        }
+    }
+
+    private void check() {
+        for (; ; ) {
+            LockSupport.parkNanos(this, CHECK_INTERVAL);
+            try {
+                enforce();
+            } catch (Throwable e) {
+                // a failure should not stop the manager
+                LoggerFactory.getLogger(LoggerManager.class).warn("Failed to apply the limits of loggers: {}",
+                        getRootCauseDescription(e));
+            }
+        }
+    }
+
+    private static final class LoggerReference extends WeakReference<Logger> {
+
+        private final String id;
+
+        private LoggerReference(Logger logger, ReferenceQueue<Logger> queue) {
+            super(logger, queue);
+            this.id = logger.getId();
+        }
+    }
+
+    /**
+     * A logger and its last access time, when the limits are applied.
+     */
+    private static final class Usage {
+
+        private final Logger logger;
+        private final long lastAccess;
+
+        private Usage(Logger logger, long lastAccess) {
+            this.logger = logger;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
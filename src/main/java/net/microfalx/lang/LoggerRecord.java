@@ -0,0 +1,202 @@
+package net.microfalx.lang;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalAmount;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.microfalx.lang.ExceptionUtils.getRootCauseDescription;
+import static net.microfalx.lang.StringUtils.formatMessage;
+
+/**
+ * Holds an entry of a {@link Logger} until it is rendered.
+ * <p>
+ * The record keeps the message pattern and a snapshot of its arguments, so the message is formatted only when
+ * the log is read (or when it is forwarded to an application logger). The layout (indentation, timestamp,
+ * severity and bullet) is captured when the entry is logged, so rendering later produces the same text.
+ * <p>
+ * A record without severity holds raw text, which is rendered as is.
+ */
+final class LoggerRecord {
+
+    static final int TIMESTAMP = 0x01;
+    static final int SEVERITY = 0x02;
+    static final int BULLET = 0x04;
+
+    private static final int NO_LAYOUT = -1;
+
+    private final LoggerRecord source;
+    private final Logger.Severity severity;
+    private final long timestamp;
+    private final String pattern;
+    private final Object[] arguments;
+    private final Throwable throwable;
+
+    private int indent;
+    private int flags = NO_LAYOUT;
+    private String message;
+
+    /**
+     * Creates a record which holds raw text.
+     *
+     * @param text the text
+     * @return a non-null instance
+     */
+    static LoggerRecord text(String text) {
+        return new LoggerRecord(null, System.currentTimeMillis(), text, null, null);
+    }
+
+    LoggerRecord(Logger.Severity severity, long timestamp, String pattern, Object[] arguments, Throwable throwable) {
+        this.source = null;
+        this.severity = severity;
+        this.timestamp = timestamp;
+        this.pattern = pattern;
+        this.arguments = snapshot(arguments);
+        this.throwable = throwable;
+    }
+
+    private LoggerRecord(LoggerRecord source, Throwable throwable, int indent, int flags) {
+        this.source = source.source != null ? source.source : source;
+        this.severity = source.severity;
+        this.timestamp = source.timestamp;
+        this.pattern = source.pattern;
+        this.arguments = source.arguments;
+        this.throwable = throwable;
+        this.indent = indent;
+        this.flags = flags;
+    }
+
+    Logger.Severity getSeverity() {
+        return severity;
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    Throwable getThrowable() {
+        return throwable;
+    }
+
+    int getIndent() {
+        return indent;
+    }
+
+    int getFlags() {
+        return flags == NO_LAYOUT ? 0 : flags;
+    }
+
+    /**
+     * Returns a record with the same message, without the failure.
+     *
+     * @return a non-null instance
+     */
+    LoggerRecord withoutThrowable() {
+        return throwable == null ? this : new LoggerRecord(this, null, indent, flags);
+    }
+
+    /**
+     * Returns a record with the same message and a given layout.
+     * <p>
+     * The layout is assigned only once: the first logger which receives the record uses this instance,
+     * the others (parents) receive a copy which shares the formatted message.
+     *
+     * @param indent the number of spaces in front of the message
+     * @param flags  the layout flags
+     * @return a non-null instance
+     */
+    LoggerRecord withLayout(int indent, int flags) {
+        if (this.flags == NO_LAYOUT) {
+            this.indent = indent;
+            this.flags = flags;
+            return this;
+        } else {
+            return new LoggerRecord(this, throwable, indent, flags);
+        }
+    }
+
+    /**
+     * Returns the message, formatted on first use.
+     *
+     * @return a non-null instance
+     */
+    String getMessage() {
+        if (source != null) return source.getMessage();
+        if (message == null) message = arguments == null ? pattern : formatMessage(pattern, arguments);
+        return message;
+    }
+
+    /**
+     * Renders the record as a line of the log.
+     *
+     * @param builder the builder which receives the text
+     */
+    void render(StringBuilder builder) {
+        String failure = throwable != null ? getRootCauseDescription(throwable) : null;
+        LoggerRenderers.renderText(builder, severity, timestamp, indent, getFlags(), getMessage(), failure);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        render(builder);
+        return builder.toString();
+    }
+
+    /**
+     * Copies the arguments so later changes done by the caller do not change the message.
+     * <p>
+     * Immutable values are kept as they are (formatted later), mutable numbers are replaced by their current value
+     * (so number formats still apply) and everything else is converted to text right away.
+     */
+    private static Object[] snapshot(Object[] arguments) {
+        if (arguments == null) return null;
+        Object[] snapshot = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i];
+            if (argument == null || isImmutable(argument)) {
+                snapshot[i] = argument;
+            } else if (argument instanceof Date) {
+                snapshot[i] = ((Date) argument).clone();
+            } else if (argument instanceof Number) {
+                snapshot[i] = snapshot((Number) argument);
+            } else {
+                snapshot[i] = String.valueOf(argument);
+            }
+        }
+        return snapshot;
+    }
+
+    private static Number snapshot(Number value) {
+        if (value instanceof AtomicInteger) {
+            return value.intValue();
+        } else if (value instanceof AtomicLong || value instanceof LongAdder || value instanceof LongAccumulator) {
+            return value.longValue();
+        } else if (value instanceof DoubleAdder || value instanceof DoubleAccumulator) {
+            return value.doubleValue();
+        } else {
+            try {
+                return new BigDecimal(value.toString());
+            } catch (NumberFormatException e) {
+                return value.doubleValue();
+            }
+        }
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Boolean
+                || value instanceof Double || value instanceof Float || value instanceof Short || value instanceof Byte
+                || value instanceof Character || value instanceof Enum || value instanceof BigDecimal
+                || value instanceof BigInteger || value instanceof TemporalAccessor || value instanceof TemporalAmount
+                || value instanceof UUID || value instanceof URI || value instanceof Class;
+    }
+}
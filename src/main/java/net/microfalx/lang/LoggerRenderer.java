@@ -0,0 +1,62 @@
+package net.microfalx.lang;
+
+/**
+ * Renders the events of a {@link Logger}.
+ *
+ * @see Logger#render(LoggerRenderer)
+ */
+public interface LoggerRenderer {
+
+    /**
+     * Returns a renderer which produces the same text as the log.
+     *
+     * @return a non-null instance
+     */
+    static LoggerRenderer text() {
+        return LoggerRenderers.TEXT;
+    }
+
+    /**
+     * Returns a renderer which produces a JSON array, with an object for each event.
+     * <p>
+     * Each call returns a new renderer, the renderer keeps track of the events already written.
+     *
+     * @return a non-null instance
+     */
+    static LoggerRenderer json() {
+        return new LoggerRenderers.JsonRenderer();
+    }
+
+    /**
+     * Returns a renderer which produces an HTML fragment, with an element for each event.
+     *
+     * @return a non-null instance
+     */
+    static LoggerRenderer html() {
+        return LoggerRenderers.HTML;
+    }
+
+    /**
+     * Invoked before the first event.
+     *
+     * @param builder the builder which receives the text
+     */
+    default void start(StringBuilder builder) {
+    }
+
+    /**
+     * Renders an event.
+     *
+     * @param event   the event
+     * @param builder the builder which receives the text
+     */
+    void render(LoggerEvent event, StringBuilder builder);
+
+    /**
+     * Invoked after the last event.
+     *
+     * @param builder the builder which receives the text
+     */
+    default void end(StringBuilder builder) {
+    }
+}
@@ -0,0 +1,167 @@
+package net.microfalx.lang;
+
+import com.google.common.escape.Escaper;
+import com.google.common.html.HtmlEscapers;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import static net.microfalx.lang.TimeUtils.toLocalDateTime;
+
+/**
+ * Holds the renderers available with {@link LoggerRenderer}.
+ */
+final class LoggerRenderers {
+
+    static final LoggerRenderer TEXT = new TextRenderer();
+    static final LoggerRenderer HTML = new HtmlRenderer();
+
+    private static final DateTimeFormatter LOG_TIME_FORMATTER = DateTimeFormatter.ofPattern("hh:mm:ss ");
+
+    private LoggerRenderers() {
+    }
+
+    /**
+     * Renders an entry as a line of the log.
+     *
+     * @param builder   the builder which receives the text
+     * @param severity  the severity, null for raw text
+     * @param timestamp the time when the entry was logged
+     * @param indent    the number of spaces in front of the message
+     * @param flags     the layout flags
+     * @param message   the message
+     * @param failure   the description of the failure, can be null
+     */
+    static void renderText(StringBuilder builder, Logger.Severity severity, long timestamp, int indent, int flags,
+                           String message, String failure) {
+        if (severity == null) {
+            builder.append(message);
+            return;
+        }
+        if ((flags & LoggerRecord.TIMESTAMP) != 0) LOG_TIME_FORMATTER.formatTo(toLocalDateTime(timestamp), builder);
+        if ((flags & LoggerRecord.SEVERITY) != 0) builder.append(severity.name()).append(' ');
+        for (int i = 0; i < indent; i++) {
+            builder.append(' ');
+        }
+        if ((flags & LoggerRecord.BULLET) != 0) builder.append(Logger.Glyph.BULLET);
+        builder.append(message);
+        if (failure != null) builder.append(", with failure: ").append(failure);
+        builder.append('\n');
+    }
+
+    private static final class TextRenderer implements LoggerRenderer {
+
+        @Override
+        public void render(LoggerEvent event, StringBuilder builder) {
+            int flags = (event.hasTimestamp() ? LoggerRecord.TIMESTAMP : 0) | (event.hasSeverity() ? LoggerRecord.SEVERITY : 0)
+                    | (event.hasBullet() ? LoggerRecord.BULLET : 0);
+            renderText(builder, event.getSeverity(), event.getTimestampMillis(), event.getIndent(), flags,
+                    event.getMessage(), event.getFailure());
+        }
+    }
+
+    /**
+     * Renders the events as a JSON array.
+     * <p>
+     * The renderer holds the state of the rendering (whether an event was already written), so an instance
+     * should not be shared between threads.
+     */
+    static final class JsonRenderer implements LoggerRenderer {
+
+        private boolean first;
+
+        @Override
+        public void start(StringBuilder builder) {
+            builder.append('[');
+            first = true;
+        }
+
+        @Override
+        public void render(LoggerEvent event, StringBuilder builder) {
+            if (!first) builder.append(',');
+            first = false;
+            builder.append("{\"timestamp\":\"").append(Instant.ofEpochMilli(event.getTimestampMillis())).append('"');
+            if (!event.isText()) builder.append(",\"severity\":\"").append(event.getSeverity().name()).append('"');
+            builder.append(",\"indent\":").append(event.getIndent());
+            appendString(builder.append(",\"message\":"), event.getMessage());
+            if (event.getFailure() != null) appendString(builder.append(",\"failure\":"), event.getFailure());
+            builder.append('}');
+        }
+
+        @Override
+        public void end(StringBuilder builder) {
+            builder.append(']');
+        }
+
+        private static void appendString(StringBuilder builder, String value) {
+            builder.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        builder.append("\\\"");
+                        break;
+                    case '\\':
+                        builder.append("\\\\");
+                        break;
+                    case '\n':
+                        builder.append("\\n");
+                        break;
+                    case '\r':
+                        builder.append("\\r");
+                        break;
+                    case '\t':
+                        builder.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            builder.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            builder.append(c);
+                        }
+                }
+            }
+            builder.append('"');
+        }
+    }
+
+    private static final class HtmlRenderer implements LoggerRenderer {
+
+        private static final Escaper ESCAPER = HtmlEscapers.htmlEscaper();
+
+        @Override
+        public void start(StringBuilder builder) {
+            builder.append("<div class=\"log\">\n");
+        }
+
+        @Override
+        public void render(LoggerEvent event, StringBuilder builder) {
+            if (event.isText()) {
+                builder.append("<pre class=\"log-text\">").append(ESCAPER.escape(event.getMessage())).append("</pre>\n");
+                return;
+            }
+            String severity = event.getSeverity().name();
+            builder.append("<div class=\"log-entry log-").append(severity.toLowerCase(Locale.ROOT)).append('"');
+            if (event.getIndent() > 0) builder.append(" style=\"padding-left:").append(event.getIndent()).append("ch\"");
+            builder.append('>');
+            if (event.hasTimestamp()) {
+                builder.append("<span class=\"log-timestamp\">");
+                LOG_TIME_FORMATTER.formatTo(event.getTimestamp(), builder);
+                builder.append("</span>");
+            }
+            if (event.hasSeverity()) builder.append("<span class=\"log-severity\">").append(severity).append(" </span>");
+            if (event.hasBullet()) builder.append("<span class=\"log-bullet\">").append(Logger.Glyph.BULLET).append("</span>");
+            builder.append("<span class=\"log-message\">").append(ESCAPER.escape(event.getMessage())).append("</span>");
+            if (event.getFailure() != null) {
+                builder.append("<span class=\"log-failure\">").append(ESCAPER.escape(event.getFailure())).append("</span>");
+            }
+            builder.append("</div>\n");
+        }
+
+        @Override
+        public void end(StringBuilder builder) {
+            builder.append("</div>");
+        }
+    }
+}
@@ -0,0 +1,953 @@
+package net.microfalx.lang;
+
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static net.microfalx.lang.ArgumentUtils.requireBounded;
+import static net.microfalx.lang.ArgumentUtils.requireNonNull;
+import static net.microfalx.lang.ExceptionUtils.getRootCauseDescription;
+import static net.microfalx.lang.ExceptionUtils.rethrowExceptionAndReturn;
+import static net.microfalx.lang.LoggerFormat.*;
+
+/**
+ * A segmented storage used by {@link Logger} to hold the text of the log.
+ * <p>
+ * The text is stored in a list of chunks. Chunks start small (most loggers hold only a few lines) and double
+ * in size until they reach {@link #MAX_CHUNK_SIZE} (or 1/8 of the maximum size, if smaller). A chunk is never re-grown or copied, when the tail chunk is full
+ * a new chunk is added. When the retained text goes over the maximum size, the oldest chunks are evicted first.
+ * <p>
+ * Positions are absolute (number of characters written since the storage was created), so they stay valid
+ * after older chunks are evicted or the storage is cleared.
+ * <p>
+ * Chunks can be compressed (sealed) individually. Only the tail chunk is mutable, so new text never touches
+ * the compressed chunks. Once the storage was compressed, every chunk is compressed as soon as it is full.
+ * <p>
+ * With tiered storage, the chunks which go over the maximum size are not discarded, they are moved to a
+ * memory-mapped file (under {@link JvmUtils#getCacheDirectory(String)}) and read from there when needed. The file
+ * is used as a ring, when it is full the oldest chunks are discarded.
+ * <p>
+ * The text of another storage can be linked as a single chunk, which holds the other storage (a rope). The text
+ * of a linked chunk is copied only when it is read.
+ * <p>
+ * The class is not thread safe, the logger accesses it under a lock.
+ */
+final class LoggerStorage {
+
+    static final int MIN_CHUNK_SIZE = 256;
+    static final int MAX_CHUNK_SIZE = 64 * 1024;
+    static final int DISK_MAX_SIZE = 256 * 1024 * 1024;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final AtomicBoolean SPILL_FAILURE_LOGGED = new AtomicBoolean();
+
+    private ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    private final ArrayDeque<Chunk> spilledChunks = new ArrayDeque<>();
+    private int maximumSize;
+    private long origin;
+    private long start;
+    private long end;
+    private long spilledLength;
+    private int evictionCount;
+    private boolean compressed;
+    private String tierName;
+    private boolean spillFailed;
+
+    private char[] spare;
+    private SpillFile spillFile;
+
+    LoggerStorage(int maximumSize) {
+        setMaximumSize(maximumSize);
+    }
+
+    /**
+     * Returns the maximum number of characters retained by the storage.
+     *
+     * @return a positive integer
+     */
+    int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Changes the maximum number of characters retained by the storage.
+     *
+     * @param maximumSize the maximum number of characters
+     */
+    void setMaximumSize(int maximumSize) {
+        requireBounded(maximumSize, MIN_CHUNK_SIZE, Integer.MAX_VALUE - MAX_CHUNK_SIZE);
+        this.maximumSize = maximumSize;
+        evict();
+    }
+
+    /**
+     * Returns the number of characters retained by the storage (all tiers).
+     *
+     * @return a positive integer
+     */
+    long length() {
+        return end - start;
+    }
+
+    /**
+     * Returns the number of characters retained in memory.
+     *
+     * @return a positive integer
+     */
+    long getHeapLength() {
+        return end - start - spilledLength;
+    }
+
+    /**
+     * Returns the number of bytes used in memory by the text (compressed chunks count with their compressed size).
+     *
+     * @return a positive integer
+     */
+    long getMemorySize() {
+        long size = 0;
+        for (Chunk chunk : chunks) {
+            size += chunk.getMemorySize();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of characters moved to disk.
+     *
+     * @return a positive integer
+     */
+    long getSpilledLength() {
+        return spilledLength;
+    }
+
+    /**
+     * Returns whether the storage moves older chunks to disk instead of discarding them.
+     *
+     * @return {@code true} if tiered, {@code false} otherwise
+     */
+    boolean isTiered() {
+        return tierName != null;
+    }
+
+    /**
+     * Enables or disables the tiered storage.
+     * <p>
+     * When disabled, the chunks already moved to disk are discarded.
+     *
+     * @param name the name of the file used to store older chunks, null to disable the tiered storage
+     */
+    void setTiered(String name) {
+        tierName = name;
+        spillFailed = false;
+        if (name == null) {
+            while (!spilledChunks.isEmpty()) {
+                discardSpilled();
+            }
+            releaseSpillFile();
+        }
+        evict();
+    }
+
+    /**
+     * Returns whether the storage holds no text.
+     *
+     * @return {@code true} if empty, {@code false} otherwise
+     */
+    boolean isEmpty() {
+        return end == start;
+    }
+
+    /**
+     * Returns the absolute position of the first character retained by the storage.
+     *
+     * @return a positive integer
+     */
+    long getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the absolute position after the last character written in the storage.
+     *
+     * @return a positive integer
+     */
+    long getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the number of chunks evicted because the storage went over the maximum size.
+     *
+     * @return a positive integer
+     */
+    int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the number of chunks currently retained.
+     *
+     * @return a positive integer
+     */
+    int getChunkCount() {
+        return chunks.size() + spilledChunks.size();
+    }
+
+    /**
+     * Returns whether the storage compresses the chunks once they are full.
+     *
+     * @return {@code true} if compressed, {@code false} otherwise
+     */
+    boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Compresses all the chunks which are not compressed yet, including the tail chunk.
+     * <p>
+     * Consecutive uncompressed chunks are compressed as a single block, for a better compression ratio.
+     * From now on, every chunk is compressed as soon as it is full.
+     */
+    void compress() {
+        compressed = true;
+        ArrayDeque<Chunk> sealed = new ArrayDeque<>(chunks.size());
+        StringBuilder builder = null;
+        for (Chunk chunk : chunks) {
+            if (chunk.isCompressed() || chunk.isLinked()) {
+                if (builder != null) sealed.addLast(Chunk.compress(builder));
+                builder = null;
+                if (chunk.isLinked()) chunk.segment.compress();
+                sealed.addLast(chunk);
+            } else if (chunk.length > 0) {
+                if (builder == null) builder = new StringBuilder();
+                builder.append(chunk.data, 0, chunk.length);
+            }
+        }
+        if (builder != null) sealed.addLast(Chunk.compress(builder));
+        chunks.clear();
+        chunks.addAll(sealed);
+    }
+
+    /**
+     * Appends a text at the end of the storage.
+     *
+     * @param text the text
+     */
+    void append(CharSequence text) {
+        requireNonNull(text);
+        int length = text.length();
+        int offset = 0;
+        while (offset < length) {
+            Chunk chunk = getTail();
+            int count = Math.min(length - offset, chunk.available());
+            if (text instanceof String) {
+                ((String) text).getChars(offset, offset + count, chunk.data, chunk.length);
+            } else if (text instanceof StringBuilder) {
+                ((StringBuilder) text).getChars(offset, offset + count, chunk.data, chunk.length);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    chunk.data[chunk.length + i] = text.charAt(offset + i);
+                }
+            }
+            chunk.length += count;
+            offset += count;
+        }
+        end += length;
+        evict();
+    }
+
+    /**
+     * Moves all the text in a new storage, which can be {@link #link(LoggerStorage) linked} in another storage.
+     * <p>
+     * The chunks are moved, not copied, and chunks moved to disk are loaded back in memory. This storage
+     * becomes empty, but the positions keep growing.
+     *
+     * @return a non-null instance
+     */
+    LoggerStorage detach() {
+        LoggerStorage segment = new LoggerStorage(maximumSize);
+        segment.chunks = chunks;
+        chunks = new ArrayDeque<>();
+        while (!spilledChunks.isEmpty()) {
+            Chunk chunk = spilledChunks.removeLast();
+            chunk.load();
+            segment.chunks.addFirst(chunk);
+        }
+        segment.origin = origin;
+        segment.start = start;
+        segment.end = end;
+        segment.compressed = compressed;
+        spilledLength = 0;
+        origin = end;
+        start = end;
+        return segment;
+    }
+
+    /**
+     * Appends the text of another storage without copying it, the text is copied only when it is read (small
+     * storages are copied right away).
+     * <p>
+     * The storage should not be changed anymore, usually it is a {@link #detach() detached} storage.
+     *
+     * @param segment the storage
+     */
+    void link(LoggerStorage segment) {
+        requireNonNull(segment);
+        if (segment.isEmpty()) return;
+        if (segment.length() <= MIN_CHUNK_SIZE) {
+            // a few lines are cheaper to copy than to hold in a separate storage
+            StringBuilder builder = new StringBuilder(MIN_CHUNK_SIZE);
+            segment.appendTo(builder, segment.start);
+            append(builder);
+        } else {
+            chunks.addLast(Chunk.link(segment));
+            end += segment.length();
+            evict();
+        }
+    }
+
+    /**
+     * Appends a character at the end of the storage.
+     *
+     * @param c the character
+     */
+    void append(char c) {
+        Chunk chunk = getTail();
+        chunk.data[chunk.length++] = c;
+        end++;
+        evict();
+    }
+
+    /**
+     * Discards all the text written after a given absolute position.
+     * <p>
+     * If the position was already evicted, all the retained text is discarded.
+     *
+     * @param position the absolute position
+     */
+    void truncate(long position) {
+        if (position >= end) return;
+        position = Math.max(position, start);
+        long chunkStart = end;
+        while (!chunks.isEmpty() || !spilledChunks.isEmpty()) {
+            boolean spilled = chunks.isEmpty();
+            Chunk chunk = spilled ? spilledChunks.removeLast() : chunks.removeLast();
+            if (spilled) spilledLength -= chunk.length;
+            chunkStart -= chunk.length;
+            if (chunkStart < position) {
+                chunk.uncompress();
+                chunk.length = (int) (position - chunkStart);
+                chunks.addLast(chunk);
+                break;
+            }
+        }
+        end = position;
+    }
+
+    /**
+     * Removes all the text.
+     * <p>
+     * The positions keep growing, a position obtained before the storage was cleared is not reused for new text.
+     */
+    void clear() {
+        chunks.clear();
+        spilledChunks.clear();
+        if (spillFile != null) spillFile.position = 0;
+        origin = end;
+        start = end;
+        spilledLength = 0;
+        compressed = false;
+    }
+
+    /**
+     * Writes the text in the compact binary format of the logger.
+     * <p>
+     * Compressed chunks are written as they are (no recompression), chunks moved to disk are read back from
+     * the file and linked storages are written in place, chunk by chunk.
+     *
+     * @param output the output
+     */
+    void encode(DataOutput output) throws IOException {
+        writeVarLong(output, maximumSize);
+        writeVarLong(output, origin);
+        writeVarLong(output, start - origin);
+        output.writeBoolean(compressed);
+        encodeChunks(output);
+        output.writeByte(Chunk.END);
+    }
+
+    /**
+     * Replaces the text with the text read from the compact binary format of the logger.
+     * <p>
+     * All the chunks are kept in memory, even if the storage was tiered when it was written.
+     *
+     * @param input   the input
+     * @param version the version of the format
+     */
+    void decode(DataInput input, int version) throws IOException {
+        clear();
+        int maximumSize = readVarInt(input);
+        if (maximumSize < MIN_CHUNK_SIZE) throw new StreamCorruptedException("Invalid maximum size: " + maximumSize);
+        this.maximumSize = maximumSize;
+        origin = readVarLong(input);
+        start = origin + readVarLong(input);
+        end = start;
+        compressed = input.readBoolean();
+        for (; ; ) {
+            int kind = input.readUnsignedByte();
+            if (kind == Chunk.END) break;
+            Chunk chunk = Chunk.decode(input, kind);
+            chunks.addLast(chunk);
+            end += chunk.length;
+        }
+    }
+
+    private void encodeChunks(DataOutput output) throws IOException {
+        for (ArrayDeque<Chunk> tier : List.of(spilledChunks, chunks)) {
+            for (Chunk chunk : tier) {
+                chunk.encode(output);
+            }
+        }
+    }
+
+    /**
+     * Releases the file used by the tiered storage, if any.
+     */
+    void release() {
+        releaseSpillFile();
+    }
+
+    /**
+     * Returns the most recent text, up to the maximum size, or all the text retained by all tiers if the storage
+     * is tiered.
+     * <p>
+     * If older text was discarded, the text starts at the first complete line.
+     *
+     * @return a non-null instance
+     */
+    @Override
+    public String toString() {
+        int length = (int) Math.min(length(), isTiered() ? Integer.MAX_VALUE - 8 : maximumSize);
+        StringBuilder builder = new StringBuilder(length);
+        appendTo(builder, end - length);
+        if (end - length > origin) {
+            int newLine = builder.indexOf("\n");
+            if (newLine >= 0 && newLine < builder.length() - 1) builder.delete(0, newLine + 1);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Copies the text which starts at a given absolute position, up to the end of the chunk which holds it.
+     * <p>
+     * If the position was already evicted, the text starts with the oldest complete line retained.
+     *
+     * @param position the absolute position
+     * @param builder  the builder which receives the text
+     * @return the absolute position after the copied text
+     */
+    long read(long position, StringBuilder builder) {
+        boolean discarded = position < start && start > origin;
+        position = Math.max(position, start);
+        if (position >= end) return end;
+        long chunkStart = start;
+        for (ArrayDeque<Chunk> tier : List.of(spilledChunks, chunks)) {
+            for (Chunk chunk : tier) {
+                long chunkEnd = chunkStart + chunk.length;
+                if (chunkEnd > position && chunk.isLinked() && !discarded) {
+                    // reads the linked storage in place, one of its chunks at a time
+                    LoggerStorage segment = chunk.segment;
+                    long segmentPosition = segment.read(segment.start + position - chunkStart, builder);
+                    return chunkStart + segmentPosition - segment.start;
+                } else if (chunkEnd > position) {
+                    char[] data = chunk.getData();
+                    int offset = (int) (position - chunkStart);
+                    if (discarded) offset = skipLine(data, offset, chunk.length);
+                    builder.append(data, offset, chunk.length - offset);
+                    return chunkEnd;
+                }
+                chunkStart = chunkEnd;
+            }
+        }
+        return end;
+    }
+
+    private static int skipLine(char[] data, int offset, int length) {
+        for (int i = offset; i < length; i++) {
+            if (data[i] == '\n') return i + 1;
+        }
+        return offset;
+    }
+
+    private void appendTo(StringBuilder builder, long position) {
+        long chunkStart = appendTo(builder, spilledChunks.iterator(), start, position);
+        appendTo(builder, chunks.iterator(), chunkStart, position);
+    }
+
+    private long appendTo(StringBuilder builder, Iterator<Chunk> iterator, long chunkStart, long position) {
+        while (iterator.hasNext()) {
+            Chunk chunk = iterator.next();
+            long chunkEnd = chunkStart + chunk.length;
+            if (chunkEnd > position) {
+                int offset = (int) Math.max(0, position - chunkStart);
+                if (chunk.isLinked()) {
+                    // copies the chunks of the linked storage, without flattening it first
+                    chunk.segment.appendTo(builder, chunk.segment.start + offset);
+                } else {
+                    builder.append(chunk.getData(), offset, chunk.length - offset);
+                }
+            }
+            chunkStart = chunkEnd;
+        }
+        return chunkStart;
+    }
+
+    private Chunk getTail() {
+        Chunk chunk = chunks.peekLast();
+        if (chunk == null || chunk.available() == 0) {
+            int size = chunk == null ? MIN_CHUNK_SIZE : Math.min(Math.max(chunk.capacity() * 2, MIN_CHUNK_SIZE), getMaximumChunkSize());
+            // a chunk never ends between the two halves of a surrogate pair, since chunks are encoded one by one
+            boolean carry = chunk != null && chunk.data != null && chunk.length > 1
+                    && Character.isHighSurrogate(chunk.data[chunk.length - 1]);
+            if (carry) chunk.length--;
+            if (compressed && chunk != null && !chunk.isCompressed() && !chunk.isLinked()) {
+                chunks.removeLast();
+                chunks.addLast(Chunk.compress(chunk));
+            }
+            char[] data;
+            if (spare != null && spare.length == size) {
+                data = spare;
+                spare = null;
+            } else {
+                data = new char[size];
+            }
+            if (carry) data[0] = chunk.data[chunk.length];
+            chunk = new Chunk(data);
+            if (carry) chunk.length = 1;
+            chunks.addLast(chunk);
+        }
+        return chunk;
+    }
+
+    private int getMaximumChunkSize() {
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, maximumSize / 8));
+    }
+
+    /**
+     * Evicts the oldest chunks from memory (they are moved to disk if the storage is tiered) until a given
+     * number of bytes is released. The most recent chunk is always retained.
+     *
+     * @param size the number of bytes to release
+     * @return the number of bytes released
+     */
+    long trim(long size) {
+        long released = 0;
+        while (chunks.size() > 1 && released < size) {
+            released += chunks.peekFirst().getMemorySize();
+            evictFirst();
+        }
+        return released;
+    }
+
+    private void evict() {
+        while (chunks.size() > 1) {
+            Chunk chunk = chunks.peekFirst();
+            if (getHeapLength() - chunk.length < maximumSize) break;
+            evictFirst();
+        }
+    }
+
+    private void evictFirst() {
+        Chunk chunk = chunks.removeFirst();
+        if (chunk.capacity() == getMaximumChunkSize() && chunk.data != null) spare = chunk.data;
+        if (isTiered() && spill(chunk)) {
+            spilledChunks.addLast(chunk);
+            spilledLength += chunk.length;
+        } else {
+            while (!spilledChunks.isEmpty()) {
+                discardSpilled();
+            }
+            discard(chunk);
+        }
+    }
+
+    private void discard(Chunk chunk) {
+        start += chunk.length;
+        evictionCount++;
+    }
+
+    /**
+     * Moves a chunk in the memory-mapped file, discarding the oldest chunks on disk if space is needed.
+     * <p>
+     * If the file cannot be created or mapped (no space left, cache directory not writable), the storage stops
+     * moving chunks to disk and discards them, like a storage which is not tiered.
+     *
+     * @param chunk the chunk
+     * @return {@code true} if the chunk was moved to disk, {@code false} if it does not fit or the disk failed
+     */
+    private boolean spill(Chunk chunk) {
+        if (spillFailed) return false;
+        try {
+            return doSpill(chunk);
+        } catch (Exception e) {
+            spillFailed = true;
+            if (SPILL_FAILURE_LOGGED.compareAndSet(false, true)) {
+                LoggerFactory.getLogger(LoggerStorage.class).warn("Failed to move logger entries to disk, older entries"
+                        + " will be discarded: {}", getRootCauseDescription(e));
+            }
+            return false;
+        }
+    }
+
+    private boolean doSpill(Chunk chunk) {
+        byte[] bytes = chunk.isCompressed() ? chunk.compressedData : chunk.toString().getBytes(StandardCharsets.UTF_8);
+        SpillFile file = getSpillFile();
+        if (bytes.length > file.capacity) return false;
+        if (file.position + bytes.length > file.capacity) {
+            // the chunks after the current position are the oldest, they go first to keep the ring in order
+            while (!spilledChunks.isEmpty() && spilledChunks.peekFirst().fileOffset >= file.position) {
+                discardSpilled();
+            }
+            file.position = 0;
+        }
+        int position = file.position;
+        while (!spilledChunks.isEmpty()) {
+            Chunk oldest = spilledChunks.peekFirst();
+            if (oldest.fileOffset >= position + bytes.length || oldest.fileOffset + oldest.fileLength <= position) {
+                break;
+            }
+            discardSpilled();
+        }
+        file.write(position, bytes);
+        file.position += bytes.length;
+        chunk.spill(file, position, bytes.length);
+        return true;
+    }
+
+    private void discardSpilled() {
+        Chunk chunk = spilledChunks.removeFirst();
+        spilledLength -= chunk.length;
+        discard(chunk);
+    }
+
+    private SpillFile getSpillFile() {
+        if (spillFile == null) {
+            File file = new File(JvmUtils.getCacheDirectory("logger"), tierName + ".log");
+            spillFile = new SpillFile(file, DISK_MAX_SIZE);
+            CLEANER.register(this, new SpillFileCleaner(file));
+        }
+        return spillFile;
+    }
+
+    private void releaseSpillFile() {
+        if (spillFile == null) return;
+        spillFile.delete();
+        spillFile = null;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buffer = new byte[Math.min(IOUtils.BUFFER_SIZE, Math.max(64, data.length))];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int length) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] buffer = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                int count = inflater.inflate(buffer, offset, length - offset);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) break;
+                offset += count;
+            }
+            return buffer;
+        } catch (DataFormatException e) {
+            return rethrowExceptionAndReturn(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * A memory-mapped file which holds the chunks moved out of the heap.
+     * <p>
+     * The files still present when the JVM exits are removed by a single shutdown hook, shared by all storages.
+     */
+    private static final class SpillFile {
+
+        private static final Set<File> FILES = ConcurrentHashMap.newKeySet();
+        private static final AtomicBoolean SHUTDOWN_HOOK = new AtomicBoolean();
+
+        private final File file;
+        private final int capacity;
+        private MappedByteBuffer buffer;
+        private int position;
+
+        private SpillFile(File file, int capacity) {
+            this.file = file;
+            this.capacity = capacity;
+            FILES.add(file);
+            if (SHUTDOWN_HOOK.compareAndSet(false, true)) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> FILES.forEach(FileUtils::remove),
+                        "Logger Spill File Cleanup"));
+            }
+        }
+
+        private static void remove(File file) {
+            FILES.remove(file);
+            FileUtils.remove(file);
+        }
+
+        private ByteBuffer getBuffer() {
+            if (buffer == null) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+                } catch (IOException e) {
+                    return rethrowExceptionAndReturn(e);
+                }
+            }
+            return buffer.duplicate();
+        }
+
+        private void write(int position, byte[] bytes) {
+            ByteBuffer buffer = getBuffer();
+            buffer.position(position);
+            buffer.put(bytes);
+        }
+
+        private byte[] read(int position, int length) {
+            ByteBuffer buffer = getBuffer();
+            buffer.position(position);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        private void delete() {
+            buffer = null;
+            remove(file);
+        }
+    }
+
+    /**
+     * Removes the file used by the tiered storage once the storage is not reachable anymore.
+     */
+    private static final class SpillFileCleaner implements Runnable {
+
+        private final File file;
+
+        private SpillFileCleaner(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            SpillFile.remove(file);
+        }
+    }
+
+    /**
+     * A chunk of text, either mutable (characters), sealed (compressed UTF-8 bytes) or moved
+     * to the memory-mapped file (UTF-8 bytes, compressed or not).
+     */
+    private static final class Chunk {
+
+        private static final int END = 0;
+        private static final int TEXT = 1;
+        private static final int DEFLATED = 2;
+
+        private char[] data;
+        private byte[] compressedData;
+        private LoggerStorage segment;
+        private int compressedLength;
+        private int length;
+
+        private SpillFile file;
+        private int fileOffset;
+        private int fileLength;
+
+        private static Chunk compress(Chunk chunk) {
+            return compress(chunk.toString());
+        }
+
+        private static Chunk compress(CharSequence text) {
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            Chunk chunk = new Chunk(null);
+            chunk.compressedData = deflate(bytes);
+            chunk.compressedLength = bytes.length;
+            chunk.length = text.length();
+            return chunk;
+        }
+
+        private static Chunk link(LoggerStorage segment) {
+            Chunk chunk = new Chunk(null);
+            chunk.segment = segment;
+            chunk.length = (int) segment.length();
+            return chunk;
+        }
+
+        private static Chunk decode(DataInput input, int kind) throws IOException {
+            Chunk chunk = new Chunk(null);
+            chunk.length = readVarInt(input);
+            if (kind == DEFLATED) {
+                chunk.compressedLength = readVarInt(input);
+                chunk.compressedData = readBytes(input);
+            } else if (kind == TEXT) {
+                chunk.data = new String(readBytes(input), StandardCharsets.UTF_8).toCharArray();
+                if (chunk.data.length != chunk.length) throw new StreamCorruptedException("Invalid chunk length");
+            } else {
+                throw new StreamCorruptedException("Unknown chunk type " + kind);
+            }
+            return chunk;
+        }
+
+        private Chunk(char[] data) {
+            this.data = data;
+        }
+
+        private boolean isCompressed() {
+            return compressedData != null;
+        }
+
+        private boolean isLinked() {
+            return segment != null;
+        }
+
+        private boolean isSpilled() {
+            return file != null;
+        }
+
+        private int capacity() {
+            return data != null ? data.length : length;
+        }
+
+        private int available() {
+            return data != null ? data.length - length : 0;
+        }
+
+        private long getMemorySize() {
+            if (data != null) return 2L * data.length;
+            if (segment != null) return segment.getMemorySize();
+            return compressedData != null ? compressedData.length : 0;
+        }
+
+        /**
+         * Returns the characters of this chunk, decompressing them if needed (the chunk stays compressed).
+         */
+        private char[] getData() {
+            if (data != null) return data;
+            if (segment != null) {
+                StringBuilder builder = new StringBuilder(length);
+                segment.appendTo(builder, segment.start);
+                char[] chars = new char[length];
+                builder.getChars(0, length, chars, 0);
+                return chars;
+            }
+            byte[] bytes;
+            if (isSpilled()) {
+                bytes = file.read(fileOffset, fileLength);
+                if (compressedLength > 0) bytes = inflate(bytes, compressedLength);
+            } else {
+                bytes = inflate(compressedData, compressedLength);
+            }
+            return new String(bytes, StandardCharsets.UTF_8).toCharArray();
+        }
+
+        /**
+         * Moves the content of the chunk to a file.
+         */
+        private void spill(SpillFile file, int offset, int length) {
+            if (!isCompressed()) compressedLength = 0;
+            this.file = file;
+            this.fileOffset = offset;
+            this.fileLength = length;
+            data = null;
+            compressedData = null;
+            segment = null;
+        }
+
+        /**
+         * Loads the content of a chunk moved to a file back in memory (compressed, if it was compressed).
+         */
+        private void load() {
+            if (!isSpilled()) return;
+            byte[] bytes = file.read(fileOffset, fileLength);
+            if (compressedLength > 0) {
+                compressedData = bytes;
+            } else {
+                data = new String(bytes, StandardCharsets.UTF_8).toCharArray();
+            }
+            file = null;
+        }
+
+        /**
+         * Turns a compressed (or spilled) chunk back in a mutable chunk.
+         */
+        private void uncompress() {
+            if (data != null) return;
+            data = getData();
+            compressedData = null;
+            compressedLength = 0;
+            segment = null;
+            file = null;
+        }
+
+        /**
+         * Writes the chunk in the compact binary format of the logger, compressed chunks are written as they are.
+         */
+        private void encode(DataOutput output) throws IOException {
+            if (length == 0) return;
+            if (isLinked()) {
+                segment.encodeChunks(output);
+                return;
+            }
+            byte[] bytes;
+            if (isSpilled()) {
+                bytes = file.read(fileOffset, fileLength);
+            } else if (isCompressed()) {
+                bytes = compressedData;
+            } else {
+                bytes = new String(data, 0, length).getBytes(StandardCharsets.UTF_8);
+            }
+            boolean deflated = compressedLength > 0;
+            output.writeByte(deflated ? DEFLATED : TEXT);
+            writeVarLong(output, length);
+            if (deflated) writeVarLong(output, compressedLength);
+            writeBytes(output, bytes);
+        }
+
+        @Override
+        public String toString() {
+            return new String(getData(), 0, length);
+        }
+    }
+}
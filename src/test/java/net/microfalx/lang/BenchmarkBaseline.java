@@ -0,0 +1,257 @@
+package net.microfalx.lang;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compares the results of the JMH benchmarks with the results of the last release (the baseline).
+ * <p>
+ * Invoked by the {@code benchmark} profile after the benchmarks, with the results file, the baseline file and the
+ * maximum regression (in percent, zero to only report the changes). Each benchmark is matched by name and parameters
+ * and the change of its score is reported, positive when the new version is faster. The build fails if a benchmark
+ * is slower than the baseline by more than the maximum regression.
+ * <p>
+ * If there is no baseline, the comparison is skipped and the command which records one is displayed.
+ */
+public final class BenchmarkBaseline {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkBaseline <results> <baseline> [<max regression %>]");
+            System.exit(2);
+        }
+        File results = new File(args[0]);
+        File baseline = new File(args[1]);
+        double maxRegression = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        if (!results.exists()) {
+            System.out.println("No benchmark results in '" + results + "'");
+            return;
+        }
+        if (!baseline.exists()) {
+            System.out.println("No benchmark baseline in '" + baseline + "', record one on the reference machine with:");
+            System.out.println("  cp " + results + " " + baseline);
+            return;
+        }
+        if (compare(read(baseline), read(results), maxRegression) > 0) System.exit(1);
+    }
+
+    /**
+     * Compares the results with the baseline and prints the changes.
+     *
+     * @param baseline      the results of the baseline, by benchmark
+     * @param results       the new results, by benchmark
+     * @param maxRegression the maximum regression accepted, in percent, zero to accept any regression
+     * @return the number of benchmarks which regressed more than accepted
+     */
+    static int compare(Map<String, Result> baseline, Map<String, Result> results, double maxRegression) {
+        Result first = results.isEmpty() ? null : results.values().iterator().next();
+        Result firstBaseline = baseline.isEmpty() ? null : baseline.values().iterator().next();
+        if (first != null && firstBaseline != null && !Objects.equals(first.environment, firstBaseline.environment)) {
+            System.out.println("Warning: the baseline was collected with " + firstBaseline.environment
+                    + ", the results with " + first.environment);
+        }
+        int regressions = 0;
+        for (Result result : results.values()) {
+            Result previous = baseline.get(result.key);
+            if (previous == null) {
+                System.out.printf("%-90s %14.3f %s (new)%n", result.key, result.score, result.unit);
+                continue;
+            }
+            double change = result.getChange(previous);
+            boolean regressed = maxRegression > 0 && change < -maxRegression;
+            if (regressed) regressions++;
+            System.out.printf("%-90s %14.3f -> %14.3f %s %+7.1f%%%s%n", result.key, previous.score, result.score,
+                    result.unit, change, regressed ? " REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) are slower than the baseline by more than "
+                    + maxRegression + "%");
+        }
+        return regressions;
+    }
+
+    /**
+     * Reads the results written by JMH in JSON format.
+     *
+     * @param file the file
+     * @return the results, by benchmark
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Result> read(File file) throws IOException {
+        Object value = new JsonReader(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).read();
+        Map<String, Result> results = new LinkedHashMap<>();
+        if (!(value instanceof List)) return results;
+        for (Object item : (List<Object>) value) {
+            Map<String, Object> benchmark = (Map<String, Object>) item;
+            Map<String, Object> metric = (Map<String, Object>) benchmark.get("primaryMetric");
+            if (metric == null) continue;
+            Result result = new Result(benchmark, metric);
+            results.put(result.key, result);
+        }
+        return results;
+    }
+
+    /**
+     * The primary score of a benchmark.
+     */
+    static final class Result {
+
+        private final String key;
+        private final String mode;
+        private final double score;
+        private final String unit;
+        private final String environment;
+
+        @SuppressWarnings("unchecked")
+        private Result(Map<String, Object> benchmark, Map<String, Object> metric) {
+            String key = benchmark.get("benchmark") + " [" + benchmark.get("mode") + "]";
+            Object params = benchmark.get("params");
+            if (params instanceof Map && !((Map<String, Object>) params).isEmpty()) key += " " + params;
+            this.key = key;
+            this.mode = (String) benchmark.get("mode");
+            this.score = ((Number) metric.get("score")).doubleValue();
+            this.unit = (String) metric.get("scoreUnit");
+            this.environment = "JMH " + benchmark.get("jmhVersion") + ", " + benchmark.get("vmName") + " "
+                    + benchmark.get("jdkVersion");
+        }
+
+        /**
+         * Returns the change of the score compared with a previous result, in percent.
+         *
+         * @param previous the previous result
+         * @return a positive value if faster, negative if slower
+         */
+        private double getChange(Result previous) {
+            if (previous.score == 0) return 0;
+            double change = (score - previous.score) / previous.score * 100;
+            // throughput: higher is better, all other modes measure time: lower is better
+            return "thrpt".equals(mode) ? change : -change;
+        }
+    }
+
+    /**
+     * A minimal JSON reader, enough for the files written by JMH.
+     */
+    private static final class JsonReader {
+
+        private final String text;
+        private int position;
+
+        private JsonReader(String text) {
+            this.text = text;
+        }
+
+        private Object read() {
+            skipWhitespace();
+            char c = text.charAt(position);
+            if (c == '{') return readObject();
+            if (c == '[') return readArray();
+            if (c == '"') return readString();
+            if (text.startsWith("true", position)) return readLiteral("true", Boolean.TRUE);
+            if (text.startsWith("false", position)) return readLiteral("false", Boolean.FALSE);
+            if (text.startsWith("null", position)) return readLiteral("null", null);
+            return readNumber();
+        }
+
+        private Map<String, Object> readObject() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            skipWhitespace();
+            if (text.charAt(position) == '}') {
+                position++;
+                return object;
+            }
+            for (; ; ) {
+                skipWhitespace();
+                String name = readString();
+                skipWhitespace();
+                expect(':');
+                object.put(name, read());
+                skipWhitespace();
+                if (text.charAt(position++) == '}') return object;
+            }
+        }
+
+        private List<Object> readArray() {
+            List<Object> array = new ArrayList<>();
+            position++;
+            skipWhitespace();
+            if (text.charAt(position) == ']') {
+                position++;
+                return array;
+            }
+            for (; ; ) {
+                array.add(read());
+                skipWhitespace();
+                if (text.charAt(position++) == ']') return array;
+            }
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder builder = new StringBuilder();
+            for (; ; ) {
+                char c = text.charAt(position++);
+                if (c == '"') return builder.toString();
+                if (c == '\\') {
+                    c = text.charAt(position++);
+                    switch (c) {
+                        case 'n':
+                            builder.append('\n');
+                            break;
+                        case 't':
+                            builder.append('\t');
+                            break;
+                        case 'r':
+                            builder.append('\r');
+                            break;
+                        case 'b':
+                            builder.append('\b');
+                            break;
+                        case 'f':
+                            builder.append('\f');
+                            break;
+                        case 'u':
+                            builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                            position += 4;
+                            break;
+                        default:
+                            builder.append(c);
+                    }
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+
+        private Object readLiteral(String literal, Object value) {
+            position += literal.length();
+            return value;
+        }
+
+        private Number readNumber() {
+            int start = position;
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) position++;
+            if (start == position) throw new IllegalStateException("Invalid JSON at position " + position);
+            return Double.parseDouble(text.substring(start, position));
+        }
+
+        private void expect(char c) {
+            if (text.charAt(position) != c) {
+                throw new IllegalStateException("Expected '" + c + "' at position " + position);
+            }
+            position++;
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) position++;
+        }
+    }
+}
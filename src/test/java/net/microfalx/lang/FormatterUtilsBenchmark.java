@@ -0,0 +1,32 @@
+package net.microfalx.lang;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatterUtilsBenchmark {
+
+    private final Duration duration = Duration.ofMillis(3_725_450);
+
+    @Benchmark
+    public String formatDuration() {
+        return FormatterUtils.formatDuration(duration);
+    }
+
+    @Benchmark
+    public String formatNumber() {
+        return FormatterUtils.formatNumber(1_234_567.891);
+    }
+
+    @Benchmark
+    public String formatNumberWithDecimals() {
+        return FormatterUtils.formatNumber(1_234_567.891, 2);
+    }
+}
@@ -0,0 +1,112 @@
+package net.microfalx.lang;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashingBenchmark {
+
+    @Param({"MURMUR3_128", "MURMUR3_32", "XXHASH64", "CRC32C"})
+    public Hashing.Algorithm algorithm;
+
+    private final LocalDateTime timestamp = LocalDateTime.of(2023, 9, 27, 17, 12, 30);
+    private final byte[] data = new byte[1024];
+    private final byte[] content = new byte[4 * 1024 * 1024];
+    private final String text = "The backup job processed 1245 items\n".repeat(10_000);
+    private final Job job = new Job("backup", 1245, 37_500_000L, true);
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("hashing", ".bin");
+        Files.write(file, content);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String updateString() {
+        return Hashing.create(algorithm).update("The backup job processed 1245 items").asString();
+    }
+
+    @Benchmark
+    public long updateNumbers() {
+        return Hashing.create(algorithm).update(1245).update(37.5d).update(1_234_567_890L).asLong();
+    }
+
+    @Benchmark
+    public long updateBoxedNumbers() {
+        return Hashing.create(algorithm).update((Object) 1245).update((Object) 37.5d).update((Object) 1_234_567_890L).asLong();
+    }
+
+    @Benchmark
+    public long updateTemporal() {
+        return Hashing.create(algorithm).update(timestamp).asLong();
+    }
+
+    @Benchmark
+    public long updateBytes() {
+        return Hashing.create(algorithm).update(data).asLong();
+    }
+
+    @Benchmark
+    public long updateInputStream() {
+        return Hashing.create(algorithm).update(new ByteArrayInputStream(content)).asLong();
+    }
+
+    @Benchmark
+    public long updateReader() {
+        return Hashing.create(algorithm).update(new StringReader(text)).asLong();
+    }
+
+    @Benchmark
+    public long updateFile() {
+        return Hashing.create(algorithm).updateFile(file).asLong();
+    }
+
+    @Benchmark
+    public long updateFileTree() {
+        return Hashing.create(algorithm).updateFileTree(file, 512 * 1024, ForkJoinPool.commonPool()).asLong();
+    }
+
+    @Benchmark
+    public long updateBean() {
+        return Hashing.create(algorithm).update(job).asLong();
+    }
+
+    @Benchmark
+    public long updateBeanByHand() {
+        return Hashing.create(algorithm).update(job.name).update(job.items).update(job.size).update(job.active).asLong();
+    }
+
+    public static class Job {
+
+        private final String name;
+        private final int items;
+        private final long size;
+        private final boolean active;
+
+        public Job(String name, int items, long size, boolean active) {
+            this.name = name;
+            this.items = items;
+            this.size = size;
+            this.active = active;
+        }
+    }
+}
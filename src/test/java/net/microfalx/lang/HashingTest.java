@@ -1,14 +1,25 @@
 package net.microfalx.lang;
 
+import net.microfalx.lang.annotation.Ignore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -78,6 +89,34 @@ class HashingTest {
                 6)).asString());
     }
 
+    @Test
+    void updateWithTemporalTypes() {
+        LocalDateTime localDateTime = LocalDateTime.of(2024, 3, 10, 12, 30, 15, 123_456_789);
+        ZonedDateTime zonedDateTime = localDateTime.atZone(ZoneId.systemDefault());
+        long millis = zonedDateTime.toInstant().toEpochMilli();
+        String expected = Hashing.create().update(millis).asString();
+        assertEquals(expected, Hashing.create().update(localDateTime).asString());
+        assertEquals(expected, Hashing.create().update(zonedDateTime).asString());
+        assertEquals(expected, Hashing.create().update(zonedDateTime.toOffsetDateTime()).asString());
+        assertEquals(expected, Hashing.create().update(zonedDateTime.toInstant()).asString());
+        Instant beforeEpoch = Instant.ofEpochSecond(-10, 500_000_000);
+        assertEquals(Hashing.create().update(beforeEpoch.toEpochMilli()).asString(),
+                Hashing.create().update(beforeEpoch.atZone(ZoneId.of("UTC"))).asString());
+    }
+
+    @Test
+    void updateWithPrimitives() {
+        assertEquals(Hashing.create().update((Object) 7).asString(), Hashing.create().update(7).asString());
+        assertEquals(Hashing.create().update((Object) 7L).asString(), Hashing.create().update(7L).asString());
+        assertEquals(Hashing.create().update((Object) 7.5f).asString(), Hashing.create().update(7.5f).asString());
+        assertEquals(Hashing.create().update((Object) 7.5d).asString(), Hashing.create().update(7.5d).asString());
+        assertEquals(Hashing.create().update((Object) true).asString(), Hashing.create().update(true).asString());
+        assertEquals(Hashing.create().update((Object) 'c').asString(), Hashing.create().update('c').asString());
+        assertEquals(Hashing.create().update((Object) (short) 7).asString(), Hashing.create().update(7).asString());
+        assertEquals(Hashing.get("text"), Hashing.create().update(new StringBuilder("text")).asString());
+        assertEquals(Hashing.get("text"), Hashing.create().update((Object) new StringBuilder("text")).asString());
+    }
+
     @Test
     void updateWithCollection() {
         assertEquals("0bbcef46454e4ab3aa08886b85e7c5a8",hashing.update(List.of(1,2,3,4,5)).asString());
@@ -93,13 +132,112 @@ class HashingTest {
     @Test
     void updateWithInputStream() {
         hashing.update(new ByteArrayInputStream(new byte[]{1,2,3,4,5}));
-        assertEquals("6cabbcb76703edb57fc0ac4ded509779",hashing.asString());
+        assertEquals(Hashing.create().update(new byte[]{1, 2, 3, 4, 5}).asString(), hashing.asString());
     }
 
     @Test
     void updateWithReader() {
         hashing.update(new StringReader("test"));
-        assertEquals("f4550809b2d30e648d672dea814d2408",hashing.asString());
+        assertEquals(Hashing.get("test"), hashing.asString());
+    }
+
+    @Test
+    void updateWithLargeReader() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            builder.append("line ").append(i).append(" \u00e9\ud83d\ude00\n");
+        }
+        String text = builder.toString();
+        hashing.update(new StringReader(text));
+        assertEquals(Hashing.get(text), hashing.asString());
+        assertEquals(Hashing.get(text), Hashing.create().update(text.toCharArray()).asString());
+    }
+
+    @Test
+    void updateWithFile() throws IOException {
+        byte[] data = new byte[IOUtils.BUFFER_SIZE * 3 + 17];
+        new Random(1).nextBytes(data);
+        Path path = Files.createTempFile("hashing", ".bin");
+        try {
+            Files.write(path, data);
+            String expected = Hashing.create().update(data).asString();
+            assertEquals(expected, hashing.updateFile(path).asString());
+            assertEquals(expected, Hashing.create().updateFile(path.toFile()).asString());
+            // update(Object) hashes the path, not the content
+            String pathHash = Hashing.create().update(path.toString()).asString();
+            assertEquals(pathHash, Hashing.create().update((Object) path).asString());
+            assertEquals(pathHash, Hashing.create().update((Object) path.toFile()).asString());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void updateWithFileTree() throws IOException {
+        int chunkSize = 64 * 1024;
+        byte[] data = new byte[chunkSize * 7 + 1234];
+        new Random(1).nextBytes(data);
+        Path path = Files.createTempFile("hashing", ".bin");
+        try {
+            Files.write(path, data);
+            Hashing expected = Hashing.create().update((long) data.length).update(chunkSize);
+            for (int offset = 0; offset < data.length; offset += chunkSize) {
+                byte[] chunk = Arrays.copyOfRange(data, offset, Math.min(data.length, offset + chunkSize));
+                expected.update(Hashing.create().update(chunk).asBytes());
+            }
+            String hash = hashing.updateFileTree(path, chunkSize, ForkJoinPool.commonPool()).asString();
+            assertEquals(expected.asString(), hash);
+            ForkJoinPool pool = new ForkJoinPool(3);
+            assertEquals(hash, Hashing.create().updateFileTree(path, chunkSize, pool).asString());
+            pool.shutdown();
+            assertNotEquals(hash, Hashing.create().updateFileTree(path, chunkSize * 2, ForkJoinPool.commonPool()).asString());
+            assertNotEquals(hash, Hashing.create().updateFile(path).asString());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void createWithAlgorithm() {
+        assertEquals(0xEF46DB3751D8E999L, Hashing.create(Hashing.Algorithm.XXHASH64).asLong());
+        assertEquals(0x44BC2CF5AD770999L, Hashing.create(Hashing.Algorithm.XXHASH64).update("abc").asLong());
+        assertEquals(0xE3069283, Hashing.create(Hashing.Algorithm.CRC32C).update("123456789").asInt());
+        assertEquals(32, Hashing.create(Hashing.Algorithm.MURMUR3_32).update("abc").bits());
+        assertEquals(Hashing.Algorithm.CRC32C, Hashing.create(Hashing.Algorithm.CRC32C).getAlgorithm());
+        assertEquals(Hashing.hash("abc"), Hashing.hash("abc", Hashing.Algorithm.MURMUR3_128));
+    }
+
+    @Test
+    void updateWithAlgorithm() {
+        byte[] data = new byte[1000];
+        new Random(2).nextBytes(data);
+        for (Hashing.Algorithm algorithm : Hashing.Algorithm.values()) {
+            String expected = Hashing.create(algorithm).update(data).asString();
+            assertEquals(expected, Hashing.create(algorithm).update(new ByteArrayInputStream(data)).asString());
+            Hashing hashing = Hashing.create(algorithm);
+            for (int offset = 0; offset < data.length; offset += 7) {
+                hashing.update(Arrays.copyOfRange(data, offset, Math.min(data.length, offset + 7)));
+            }
+            assertEquals(expected, hashing.asString());
+            assertEquals(algorithm.getBits(), Hashing.create(algorithm).update(List.of(1, 2L, 3.5d, "a", true)).bits());
+        }
+    }
+
+    @Test
+    void updateWithBean() {
+        Item item = new Item("item", 7, 1_000L, true, 'x', (short) 3, new Item("child", 1, 2L, false, 'y', (short) 4, null));
+        String expected = Hashing.create().update("item").update(7).update(1_000L).update(true).update('x').update((short) 3)
+                .update("child").update(1).update(2L).update(false).update('y').update((short) 4).update(null)
+                .asString();
+        assertEquals(expected, hashing.update(item).asString());
+        item.ignored = "changed";
+        item.cached = 100;
+        assertEquals(expected, Hashing.create().update(item).asString());
+        item.child.count = 2;
+        assertNotEquals(expected, Hashing.create().update(item).asString());
+        item.child.child = item;
+        assertThrows(IllegalArgumentException.class, () -> Hashing.create().update(item));
+        assertThrows(IllegalArgumentException.class, () -> Hashing.create().update(new Object()));
     }
 
     @Test
@@ -141,4 +279,36 @@ class HashingTest {
     void longToId() {
         assertEquals("0", Hashing.longToId("I am writing java code".getBytes(), 5));
     }
-}
\ No newline at end of file
+
+    private static class Named {
+
+        private final String name;
+
+        private Named(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class Item extends Named {
+
+        private int count;
+        private final long size;
+        private final boolean active;
+        private final char code;
+        private final short priority;
+        private Item child;
+        @Ignore
+        private String ignored;
+        private transient int cached;
+
+        private Item(String name, int count, long size, boolean active, char code, short priority, Item child) {
+            super(name);
+            this.count = count;
+            this.size = size;
+            this.active = active;
+            this.code = code;
+            this.priority = priority;
+            this.child = child;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package net.microfalx.lang;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+
+    @State(Scope.Thread)
+    public static class Loader {
+
+        final LongSupplier supplier = IdGenerator.get().asSupplier(1024);
+        final char[] buffer = new char[IdGenerator.MAX_ENCODED_LENGTH];
+    }
+
+    @Benchmark
+    public long next() {
+        return IdGenerator.get().next();
+    }
+
+    @Benchmark
+    public String nextAsString() {
+        return IdGenerator.get().nextAsString();
+    }
+
+    @Benchmark
+    public String nextAsSortableString() {
+        return IdGenerator.get().nextAsSortableString();
+    }
+
+    @Benchmark
+    public int appendTo(Loader loader) {
+        return IdGenerator.appendTo(IdGenerator.get().next(), loader.buffer, 0);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long nextContended() {
+        return IdGenerator.get().next();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public long[] nextBlock() {
+        return IdGenerator.get().nextBlock(1024);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long nextFromSupplier(Loader loader) {
+        return loader.supplier.getAsLong();
+    }
+}
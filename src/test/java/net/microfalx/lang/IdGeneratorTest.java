@@ -2,10 +2,25 @@ package net.microfalx.lang;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class IdGeneratorTest {
@@ -29,4 +44,222 @@ class IdGeneratorTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    void nextConcurrent() throws Exception {
+        IdGenerator generator = new IdGenerator("test", System.currentTimeMillis(), 5, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(executor.submit(() -> {
+                long previous = 0;
+                for (int i = 0; i < 100_000; i++) {
+                    long next = generator.next();
+                    assertTrue(next > previous);
+                    assertEquals(5, (next >>> IdGenerator.SEQUENCE_BITS) & ((1 << IdGenerator.MACHINE_BITS) - 1));
+                    assertTrue(ids.add(next));
+                    previous = next;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertEquals(800_000, ids.size());
+    }
+
+    @Test
+    void nextSingleThread() {
+        IdGenerator generator = new IdGenerator("test", System.currentTimeMillis(), 5, 64);
+        long previous = 0;
+        int sameTimestamp = 0;
+        int maxSameTimestamp = 0;
+        for (int i = 0; i < 2_000_000; i++) {
+            long next = generator.next();
+            assertTrue(next > previous);
+            sameTimestamp = IdGenerator.timestampOf(next) == IdGenerator.timestampOf(previous) ? sameTimestamp + 1 : 1;
+            maxSameTimestamp = Math.max(maxSameTimestamp, sameTimestamp);
+            previous = next;
+        }
+        // a thread is not limited to the block of its stripe
+        assertTrue(maxSameTimestamp > IdGenerator.BOUND / 64);
+        assertTrue(IdGenerator.timestampOf(previous) - System.currentTimeMillis() <= IdGenerator.MAX_DRIFT_MILLIS);
+    }
+
+    @Test
+    void nextBlock() {
+        IdGenerator generator = new IdGenerator("test", System.currentTimeMillis(), 5, 4);
+        long previous = generator.next();
+        for (int i = 0; i < 10; i++) {
+            long[] block = generator.nextBlock(10_000);
+            assertEquals(10_000, block.length);
+            for (long next : block) {
+                assertTrue(next > previous);
+                assertTrue(ids.add(next));
+                previous = next;
+            }
+        }
+        assertTrue(generator.next() > previous);
+    }
+
+    @Test
+    void nextBlockDrift() {
+        IdGenerator generator = new IdGenerator("test", System.currentTimeMillis(), 5, 64);
+        long[] block = generator.nextBlock(IdGenerator.MAX_BLOCK_SIZE);
+        assertTrue(IdGenerator.timestampOf(block[block.length - 1]) - System.currentTimeMillis() <= 2 * IdGenerator.MAX_DRIFT_MILLIS);
+        LongSupplier supplier = generator.asSupplier(1000);
+        long previous = block[block.length - 1];
+        for (int i = 0; i < 3_000_000; i++) {
+            long next = supplier.getAsLong();
+            assertTrue(next > previous);
+            previous = next;
+        }
+        // a block of the supplier can end in the millisecond after the maximum drift
+        assertTrue(IdGenerator.timestampOf(previous) - System.currentTimeMillis() <= IdGenerator.MAX_DRIFT_MILLIS + 1);
+        assertThrows(IllegalArgumentException.class, () -> generator.nextBlock(IdGenerator.MAX_BLOCK_SIZE + 1));
+    }
+
+    @Test
+    void asSupplier() {
+        IdGenerator generator = new IdGenerator("test", System.currentTimeMillis(), 5, 4);
+        LongSupplier supplier = generator.asSupplier(1000);
+        long previous = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long next = supplier.getAsLong();
+            assertTrue(next > previous);
+            assertTrue(ids.add(next));
+            previous = next;
+        }
+        assertTrue(generator.next() > previous);
+    }
+
+    @Test
+    void appendTo() {
+        StringBuilder builder = new StringBuilder("id:");
+        char[] buffer = new char[IdGenerator.MAX_ENCODED_LENGTH + 1];
+        for (long id : new long[]{0, 35, 36, IdGenerator.get().next(), Long.MAX_VALUE}) {
+            String expected = Long.toString(id, Character.MAX_RADIX);
+            builder.setLength(3);
+            assertEquals("id:" + expected, IdGenerator.appendTo(id, builder).toString());
+            int end = IdGenerator.appendTo(id, buffer, 1);
+            assertEquals(expected, new String(buffer, 1, end - 1));
+        }
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.appendTo(-1, new StringBuilder()));
+        assertThrows(IndexOutOfBoundsException.class, () -> IdGenerator.appendTo(Long.MAX_VALUE, new char[4], 0));
+    }
+
+    @Test
+    void decode() {
+        long time = System.currentTimeMillis();
+        IdGenerator generator = new IdGenerator("test", time, 5, 1);
+        long id = generator.next();
+        assertTrue(IdGenerator.timestampOf(id) >= time);
+        assertEquals(5, IdGenerator.machineOf(id));
+        assertEquals(0, IdGenerator.sequenceOf(id));
+    }
+
+    @Test
+    void range() {
+        Instant from = Instant.now();
+        long id = IdGenerator.get().next();
+        Instant to = Instant.ofEpochMilli(IdGenerator.timestampOf(id));
+        assertTrue(id >= IdGenerator.rangeStart(from));
+        assertTrue(id <= IdGenerator.rangeEnd(to));
+        assertTrue(id > IdGenerator.rangeEnd(to.minusMillis(1)));
+        assertEquals(IdGenerator.rangeStart(to.plusMillis(1)) - 1, IdGenerator.rangeEnd(to));
+    }
+
+    @Test
+    void sortableString() {
+        String previous = "";
+        for (long id : IdGenerator.get().nextBlock(10_000)) {
+            String value = IdGenerator.toSortableString(id);
+            assertEquals(IdGenerator.SORTABLE_LENGTH, value.length());
+            assertTrue(value.compareTo(previous) > 0);
+            assertEquals(id, IdGenerator.fromSortableString(value));
+            previous = value;
+        }
+        assertEquals("0000000000000", IdGenerator.toSortableString(0));
+        assertEquals("7ZZZZZZZZZZZZ", IdGenerator.toSortableString(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, IdGenerator.fromSortableString("7zzzzzzzzzzzz"));
+        assertEquals(32, IdGenerator.fromSortableString("00000000000lo"));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.fromSortableString("8000000000000"));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.fromSortableString("000000000000U"));
+    }
+
+    @Test
+    void uuid() {
+        UUID previous = new UUID(0, 0);
+        for (long id : IdGenerator.get().nextBlock(10_000)) {
+            UUID uuid = IdGenerator.toUUID(id);
+            assertEquals(7, uuid.version());
+            assertEquals(2, uuid.variant());
+            assertEquals(IdGenerator.timestampOf(id), uuid.getMostSignificantBits() >>> 16);
+            assertTrue(uuid.toString().compareTo(previous.toString()) > 0);
+            assertEquals(id, IdGenerator.fromUUID(uuid));
+            previous = uuid;
+        }
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.fromUUID(UUID.randomUUID()));
+    }
+
+    @Test
+    void lease() throws Exception {
+        File directory = JvmUtils.getTemporaryDirectory("lease", null);
+        try (IdGeneratorLease first = IdGeneratorLease.acquire(directory, 1023, IdGenerator.MAX_NODE_ID, Duration.ofSeconds(10));
+             IdGeneratorLease second = IdGeneratorLease.acquire(directory, 1023, IdGenerator.MAX_NODE_ID, Duration.ofSeconds(10))) {
+            assertEquals(1023, first.getNodeId());
+            assertEquals(0, second.getNodeId());
+            assertTrue(first.isValid());
+            long time = System.currentTimeMillis();
+            first.renew();
+            assertTrue(getHeartbeat(first) >= time);
+            first.close();
+            assertFalse(first.isValid());
+            try (IdGeneratorLease third = IdGeneratorLease.acquire(directory, 1023, IdGenerator.MAX_NODE_ID, Duration.ofSeconds(10))) {
+                assertEquals(1023, third.getNodeId());
+            }
+        } finally {
+            removeDirectory(directory);
+        }
+    }
+
+    @Test
+    void leaseSkipsLiveHeartbeat() throws Exception {
+        File directory = JvmUtils.getTemporaryDirectory("heartbeat", null);
+        try {
+            Files.writeString(new File(directory, "node-7.lock").toPath(), System.currentTimeMillis() + " 1@other");
+            try (IdGeneratorLease lease = IdGeneratorLease.acquire(directory, 7, IdGenerator.MAX_NODE_ID, Duration.ofSeconds(10))) {
+                assertEquals(8, lease.getNodeId());
+            }
+            Files.writeString(new File(directory, "node-7.lock").toPath(), "0 1@other");
+            try (IdGeneratorLease lease = IdGeneratorLease.acquire(directory, 7, IdGenerator.MAX_NODE_ID, Duration.ofSeconds(10))) {
+                assertEquals(7, lease.getNodeId());
+            }
+        } finally {
+            removeDirectory(directory);
+        }
+    }
+
+    @Test
+    void leaseInUnwritableDirectory() throws Exception {
+        File variableDirectory = JvmUtils.getVariableDirectory();
+        File file = Files.createTempFile("lease", ".var").toFile();
+        JvmUtils.setVariableDirectory(file);
+        try {
+            assertNull(IdGenerator.acquireLease(7));
+        } finally {
+            JvmUtils.setVariableDirectory(variableDirectory);
+            FileUtils.remove(file);
+        }
+    }
+
+    private static long getHeartbeat(IdGeneratorLease lease) throws IOException {
+        String heartbeat = Files.readString(lease.getFile().toPath()).trim();
+        return Long.parseLong(heartbeat.substring(0, heartbeat.indexOf(' ')));
+    }
+
+    private static void removeDirectory(File directory) {
+        FileUtils.remove(directory, "*", 1);
+        FileUtils.remove(directory);
+    }
+}
@@ -0,0 +1,43 @@
+package net.microfalx.lang;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggerBenchmark {
+
+    private Logger logger;
+    private Logger child;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        logger = Logger.create().withMaximumSize(1_000_000);
+        child = Logger.create(Logger.create(logger));
+    }
+
+    @Benchmark
+    public Logger info() {
+        return logger.info("The backup job processed 1245 items");
+    }
+
+    @Benchmark
+    public Logger infoWithArguments() {
+        return logger.info("The {0} job processed {1} items", "backup", 1245);
+    }
+
+    @Benchmark
+    public Logger infoWithParents() {
+        return child.info("The backup job processed 1245 items");
+    }
+
+    @Benchmark
+    public Logger debugNotIncluded() {
+        return logger.debug("The {0} job processed {1} items", "backup", 1245);
+    }
+}
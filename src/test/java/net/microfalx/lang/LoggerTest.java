@@ -3,11 +3,39 @@ package net.microfalx.lang;
 import org.junit.jupiter.api.Test;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
 class LoggerTest {
 
@@ -53,6 +81,53 @@ class LoggerTest {
                 "info 3", logger.getOutput());
     }
 
+    @Test
+    void withAsyncLogger() {
+        org.slf4j.Logger target = mock(org.slf4j.Logger.class);
+        when(target.isInfoEnabled()).thenReturn(true);
+        try (LoggerBridge bridge = LoggerBridge.create(10, LoggerBridge.OverflowPolicy.BLOCK)) {
+            Logger logger = Logger.create().withLogger(target, bridge);
+            for (int i = 0; i < 100; i++) {
+                logger.info("info {0}", i);
+                logger.debug("debug {0}", i);
+            }
+            assertTrue(bridge.flush(Duration.ofSeconds(10)));
+            assertEquals(100, bridge.getForwardedCount());
+            assertEquals(0, bridge.getDroppedCount());
+            verify(target, times(100)).info(anyString());
+            verify(target, never()).debug(anyString());
+        }
+    }
+
+    @Test
+    void withAsyncLoggerClosedWhileLogging() throws Exception {
+        org.slf4j.Logger target = mock(org.slf4j.Logger.class);
+        when(target.isInfoEnabled()).thenReturn(true);
+        LoggerBridge bridge = LoggerBridge.create(10, LoggerBridge.OverflowPolicy.BLOCK);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    Logger logger = Logger.create().withLogger(target, bridge);
+                    for (int i = 0; i < 1000; i++) {
+                        logger.info("info {0}", i);
+                    }
+                }));
+            }
+            Thread.sleep(5);
+            bridge.close();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertTrue(bridge.flush(Duration.ofSeconds(10)));
+            assertEquals(bridge.getSubmittedCount(), bridge.getForwardedCount());
+            verify(target, times(4000)).info(anyString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     void logWithDebugEnabled() {
         Logger logger = Logger.create().withDebug(true);
@@ -114,6 +189,37 @@ class LoggerTest {
                 "\\  Test2", logger.getOutput());
     }
 
+    @Test
+    void logWithDeferredFormatting() {
+        AtomicInteger formatted = new AtomicInteger();
+        Object argument = new Object() {
+            @Override
+            public String toString() {
+                formatted.incrementAndGet();
+                return "arg";
+            }
+        };
+        Logger logger = Logger.create();
+        logger.debug("debug {0}", argument);
+        assertEquals(0, formatted.get());
+        assertEquals(1, logger.getDebugCount());
+        logger.info("info {0}", argument);
+        assertEquals(1, formatted.get());
+        assertEquals("info arg", logger.getOutput());
+    }
+
+    @Test
+    void logWithMutableNumbers() {
+        AtomicLong count = new AtomicLong(1234567);
+        AtomicInteger rate = new AtomicInteger(5);
+        Logger logger = Logger.create();
+        logger.info("a={0} b={1,number,#.00}", count, rate);
+        count.set(0);
+        rate.set(0);
+        assertEquals(MessageFormat.format("a={0} b={1,number,#.00}", 1234567L, 5), logger.getOutput());
+        assertFalse(logger.getOutput().contains("{1"));
+    }
+
     @Test
     void compress() {
         Logger logger = Logger.create();
@@ -127,6 +233,440 @@ class LoggerTest {
         assertEquals("text1\ntext2", logger.getOutput());
     }
 
+    @Test
+    void compressSurrogatePairAtChunkBoundary() {
+        Logger logger = Logger.create();
+        logger.compress();
+        String text = "x".repeat(255) + Logger.Glyph.ALARM + " alarm";
+        logger.info(text);
+        logger.info("next");
+        assertEquals(text + "\nnext", logger.getOutput());
+    }
+
+    @Test
+    void withMaximumSize() {
+        Logger logger = Logger.create().withMaximumSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            logger.info("line " + i);
+        }
+        String output = logger.getOutput();
+        assertTrue(output.length() <= 1000);
+        assertTrue(output.startsWith("line "));
+        assertTrue(output.endsWith("line 999"));
+        assertEquals(1000, logger.getInfoCount());
+    }
+
+    @Test
+    void withTieredStorage() {
+        Logger logger = Logger.create().withMaximumSize(1000).withTieredStorage(true);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            logger.info("line " + i);
+            expected.append("line ").append(i).append('\n');
+            if (i == 5000) logger.compress();
+        }
+        assertEquals(expected.toString().trim(), logger.getOutput());
+        logger.withTieredStorage(false);
+        assertTrue(logger.getOutput().length() <= 1000);
+    }
+
+    @Test
+    void withTieredStorageAndSurrogatePairs() {
+        Logger logger = Logger.create().withMaximumSize(1000).withTieredStorage(true);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            logger.info("line " + i + " " + Logger.Glyph.ALARM);
+            expected.append("line ").append(i).append(' ').append(Logger.Glyph.ALARM).append('\n');
+        }
+        assertEquals(expected.toString().trim(), logger.getOutput());
+        logger.withTieredStorage(false);
+    }
+
+    @Test
+    void withTieredStorageOnUnwritableDisk() throws IOException {
+        Logger logger = Logger.create().withMaximumSize(1000).withTieredStorage(true);
+        File cacheDirectory = JvmUtils.getCacheDirectory();
+        File file = Files.createTempFile("logger", ".cache").toFile();
+        JvmUtils.setCacheDirectory(file);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                logger.info("line " + i);
+            }
+            String output = logger.getOutput();
+            assertFalse(output.startsWith("line 0\n"));
+            assertTrue(output.endsWith("line 999"));
+        } finally {
+            JvmUtils.setCacheDirectory(cacheDirectory);
+            FileUtils.remove(file);
+        }
+    }
+
+    @Test
+    void markAndUnmark() {
+        Logger logger = Logger.create();
+        logger.info("text1");
+        logger.mark();
+        logger.info("text2");
+        logger.unmark();
+        logger.info("text3");
+        assertEquals("text1\ntext3", logger.getOutput());
+    }
+
+    @Test
+    void withConcurrentWrites() throws InterruptedException {
+        Logger logger = Logger.create().withConcurrentWrites(true);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            int thread = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 5000; j++) {
+                    logger.info(thread + ":" + j);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, logger.getInfoCount());
+        int[] last = new int[threads.length];
+        Arrays.fill(last, -1);
+        String[] lines = logger.getOutput().split("\n");
+        assertEquals(40000, lines.length);
+        for (String line : lines) {
+            String[] parts = line.split(":");
+            int thread = Integer.parseInt(parts[0]);
+            int index = Integer.parseInt(parts[1]);
+            assertEquals(last[thread] + 1, index);
+            last[thread] = index;
+        }
+    }
+
+    @Test
+    void withBatchedPropagation() {
+        Logger root = Logger.create();
+        Logger stage = Logger.create(root).withBatchedPropagation(true);
+        Logger task = Logger.create(stage).withBatchedPropagation(true);
+        for (int i = 0; i < 250; i++) {
+            task.info("Entry " + i);
+        }
+        stage.warn("Stage done");
+        assertEquals(250, task.getInfoCount());
+        assertEquals(250, stage.getInfoCount());
+        assertEquals(250, root.getInfoCount());
+        assertEquals(1, root.getWarningCount());
+        String[] lines = root.getOutput().split("\n");
+        assertEquals(251, lines.length);
+        for (int i = 0; i < 250; i++) {
+            assertEquals("Entry " + i, lines[i].trim());
+        }
+        assertEquals("Stage done", lines[250].trim());
+        assertEquals(250, stage.getOutput().split("\n").length - 1);
+        task.info("Late entry");
+        assertTrue(root.getOutput().endsWith("Late entry"));
+    }
+
+    @Test
+    void manageMemory() {
+        LoggerManager manager = LoggerManager.get();
+        Logger older = Logger.create();
+        Logger recent = Logger.create();
+        for (int i = 0; i < 1000; i++) {
+            older.info("Older entry " + i);
+            recent.info("Recent entry " + i);
+        }
+        assertTrue(manager.getLoggers().contains(older));
+        assertTrue(manager.getMemorySize() >= older.getMemorySize() + recent.getMemorySize());
+        long maximumMemory = manager.getMaximumMemory();
+        try {
+            manager.setMaximumMemory(0);
+            manager.enforce();
+            assertTrue(older.isCompressed());
+            assertTrue(older.getCompressionRatio() > 1);
+            assertTrue(manager.getCompressionCount() > 0);
+            assertTrue(older.getOutput().endsWith("Older entry 999"));
+            for (int i = 0; i < 1000; i++) {
+                older.info("Later entry " + i);
+            }
+            manager.enforce();
+            assertTrue(manager.getTrimCount() > 0);
+            assertTrue(older.getOutput().endsWith("Later entry 999"));
+        } finally {
+            manager.setMaximumMemory(maximumMemory);
+        }
+    }
+
+    @Test
+    void readFrom() {
+        Logger logger = Logger.create();
+        logger.info("First");
+        long offset = logger.getOffset();
+        assertEquals("", logger.readFrom(offset));
+        logger.info("Second");
+        logger.info("Third");
+        assertEquals("Second\nThird\n", logger.readFrom(offset));
+        offset = logger.getOffset();
+        logger.clear();
+        logger.info("Fourth");
+        assertEquals("Fourth\n", logger.readFrom(offset));
+        assertEquals(offset + 7, logger.getOffset());
+    }
+
+    @Test
+    void writeToAndRead() throws IOException {
+        Logger logger = Logger.create().withMaximumSize(2000);
+        logger.compress();
+        for (int i = 0; i < 500; i++) {
+            logger.info("Entry " + i);
+        }
+        StringWriter writer = new StringWriter();
+        long offset = logger.writeTo(writer);
+        assertEquals(logger.getOffset(), offset);
+        assertTrue(writer.toString().startsWith("Entry "));
+        assertTrue(writer.toString().endsWith("Entry 499\n"));
+        logger.info("Entry 500");
+        writer = new StringWriter();
+        assertEquals(logger.getOffset(), logger.writeTo(writer, offset));
+        assertEquals("Entry 500\n", writer.toString());
+        String text = IOUtils.getReaderAsString(logger.getReader());
+        assertTrue(text.startsWith("Entry "));
+        assertTrue(text.endsWith("Entry 500\n"));
+        assertTrue(text.contains(logger.getOutput()));
+    }
+
+    @Test
+    void renderEventsAsJson() {
+        Logger logger = Logger.create().withEvents(true);
+        logger.append(Logger.create().info("Copied"));
+        logger.info("Started");
+        LoggerRenderer renderer = LoggerRenderer.json();
+        String json = logger.render(renderer);
+        assertEquals(json, logger.render(renderer));
+        assertEquals(2, json.split("\\},\\{").length);
+        assertFalse(json.contains("1970-01-01"));
+        assertEquals("[]", Logger.create().withEvents(true).render(renderer));
+    }
+
+    @Test
+    void renderEvents() {
+        Logger logger = Logger.create().withEvents(true).withSeverity(true);
+        logger.info("Started");
+        logger.increaseIndent();
+        logger.warn("Slow \"step\" {0}", 2);
+        logger.debug("Not included");
+        logger.error("Failed", new IOException("Disk full"));
+        logger.decreaseIndent();
+        assertEquals(logger.getOutput(), logger.render(LoggerRenderer.text()).trim());
+        assertEquals("WARN    Slow \"step\" 2\nERROR    Failed, root cause Disk full, with failure: Disk full (I/O)\n",
+                logger.render(LoggerRenderer.text(), LoggerEvent.atLeast(Logger.Severity.WARN)));
+        assertEquals("INFO Started\n", logger.render(LoggerRenderer.text(), LoggerEvent.indentBetween(0, 0)));
+        String json = logger.render(LoggerRenderer.json(), LoggerEvent.atLeast(Logger.Severity.WARN));
+        assertTrue(json.startsWith("[{\"timestamp\":"));
+        assertTrue(json.contains("\"severity\":\"WARN\",\"indent\":3,\"message\":\"Slow \\\"step\\\" 2\"},{"));
+        assertTrue(json.endsWith("\"failure\":\"Disk full (I/O)\"}]"));
+        String html = logger.render(LoggerRenderer.html());
+        assertTrue(html.contains("<div class=\"log-entry log-warn\" style=\"padding-left:3ch\">"));
+        assertTrue(html.contains("Slow &quot;step&quot; 2"));
+        logger.mark();
+        logger.info("Temporary");
+        logger.unmark();
+        assertEquals(3, logger.render(LoggerRenderer.text()).split("\n").length);
+    }
+
+    @Test
+    void mergeLargeForks() throws IOException {
+        Logger logger = Logger.create();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            Logger fork = logger.fork();
+            for (int j = 0; j < 500; j++) {
+                fork.info("Worker " + i + " entry " + j);
+                expected.append("Worker ").append(i).append(" entry ").append(j).append('\n');
+            }
+            logger.merge(fork);
+        }
+        assertEquals(expected.toString().trim(), logger.getOutput());
+        assertEquals(expected.substring(100), logger.readFrom(100));
+        StringWriter writer = new StringWriter();
+        logger.writeTo(writer);
+        assertEquals(expected.toString(), writer.toString());
+    }
+
+    @Test
+    void forkAndMerge() {
+        Logger logger = Logger.create();
+        logger.info("Start");
+        logger.increaseIndent();
+        Logger[] forks = new Logger[3];
+        for (int i = 0; i < forks.length; i++) {
+            forks[i] = logger.fork();
+            forks[i].info("Worker " + i);
+            forks[i].warn("Worker " + i + " done");
+        }
+        logger.compress();
+        for (Logger fork : forks) {
+            logger.merge(fork);
+        }
+        logger.decreaseIndent();
+        logger.info("End");
+        assertEquals("Start\n   Worker 0\n   Worker 0 done\n   Worker 1\n   Worker 1 done\n   Worker 2\n"
+                + "   Worker 2 done\nEnd", logger.getOutput());
+        assertEquals(5, logger.getInfoCount());
+        assertEquals(3, logger.getWarningCount());
+        assertTrue(forks[0].isEmpty());
+        assertEquals("", forks[0].getOutput());
+        forks[0].info("Late");
+        Logger outer = Logger.create();
+        outer.merge(logger);
+        assertTrue(outer.getOutput().startsWith("Start\n   Worker 0\n"));
+        assertEquals("End\n", outer.readFrom(outer.getOffset() - 4));
+        assertEquals("Late", forks[0].getOutput());
+        Logger large = outer.fork();
+        StringBuilder expected = new StringBuilder("End\n");
+        for (int i = 0; i < 100; i++) {
+            large.info("Entry " + i);
+            expected.append("Entry ").append(i).append('\n');
+        }
+        outer.merge(large);
+        outer.info("Last");
+        assertTrue(outer.getOutput().endsWith(expected + "Last"));
+    }
+
+    @Test
+    void carryContext() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Logger previous = LoggerContext.get();
+        Logger logger = Logger.create().attach();
+        try {
+            ExecutorService contextExecutor = LoggerContext.wrap(executor);
+            contextExecutor.submit(() -> Logger.current().info("From executor")).get();
+            assertSame(logger, LoggerContext.supplyAsync(Logger::current, executor).get());
+            assertNull(executor.submit(LoggerContext::get).get());
+            assertEquals("From executor", logger.getOutput());
+        } finally {
+            logger.detach();
+            executor.shutdown();
+        }
+        assertSame(previous, LoggerContext.get());
+        assertSame(logger, Logger.last());
+    }
+
+    @Test
+    void carryNoContext() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ExecutorService submitter = Executors.newSingleThreadExecutor();
+        Logger logger = Logger.create();
+        try {
+            // a task which leaves its logger attached to the pool thread
+            executor.submit(() -> LoggerContext.push(logger)).get();
+            assertNull(submitter.submit(() -> LoggerContext.wrap(executor).submit(LoggerContext::get).get()).get());
+            assertNull(submitter.submit(() -> LoggerContext.supplyAsync(LoggerContext::get, executor).get()).get());
+            assertSame(logger, executor.submit(LoggerContext::get).get());
+        } finally {
+            executor.shutdown();
+            submitter.shutdown();
+        }
+    }
+
+    @Test
+    void withFile() throws IOException {
+        File file = File.createTempFile("logger", ".log");
+        try (LoggerFileSink sink = LoggerFileSink.create(LoggerFileSink.DEFAULT_CAPACITY, Duration.ofMillis(10))) {
+            Logger logger = Logger.create().withFile(file, sink);
+            for (int i = 0; i < 100; i++) {
+                logger.info("Entry " + i);
+            }
+            Logger fork = logger.fork();
+            for (int i = 0; i < 100; i++) {
+                fork.info("Fork entry " + i);
+            }
+            logger.merge(fork);
+            assertTrue(sink.flush(Duration.ofSeconds(5)));
+            assertEquals(logger.getOutput() + "\n", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            assertTrue(sink.getSyncCount() > 0);
+        } finally {
+            FileUtils.remove(file);
+        }
+    }
+
+    @Test
+    void withFileWrittenWithoutReading() throws IOException {
+        File file = File.createTempFile("logger", ".log");
+        try (LoggerFileSink sink = LoggerFileSink.create(LoggerFileSink.DEFAULT_CAPACITY, Duration.ofMillis(10))) {
+            Logger logger = Logger.create().withFile(file, sink);
+            for (int i = 0; i < 10; i++) {
+                logger.info("Entry " + i);
+            }
+            assertTrue(sink.flush(Duration.ofSeconds(5)));
+            String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            for (int i = 0; i < 10; i++) {
+                assertTrue(text.contains("Entry " + i + "\n"));
+            }
+            assertEquals(logger.getOutput() + "\n", text);
+        } finally {
+            FileUtils.remove(file);
+        }
+    }
+
+    @Test
+    void serialize() throws Exception {
+        Logger logger = Logger.create().withEvents(true).withSeverity(true).setName("Job");
+        for (int i = 0; i < 2000; i++) {
+            logger.info("Entry " + i);
+        }
+        logger.compress();
+        Logger fork = logger.fork();
+        fork.warn("Forked entry");
+        logger.merge(fork);
+        logger.error("Failed", new IOException("Disk full"));
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream outputStream = new ObjectOutputStream(buffer)) {
+            outputStream.writeObject(logger);
+        }
+        Logger copy;
+        try (ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            copy = (Logger) inputStream.readObject();
+        }
+        assertEquals(logger.getId(), copy.getId());
+        assertEquals("Job", copy.getName());
+        assertEquals(logger.getOutput(), copy.getOutput());
+        assertEquals(logger.getInfoCount(), copy.getInfoCount());
+        assertEquals(1, copy.getErrorCount());
+        assertEquals(logger.getOffset(), copy.getOffset());
+        assertTrue(copy.isCompressed());
+        assertEquals(logger.render(LoggerRenderer.json()), copy.render(LoggerRenderer.json()));
+        copy.info("After");
+        assertTrue(copy.getOutput().endsWith("\nINFO After"));
+
+        buffer.reset();
+        logger.withEvents(false).encode(new DataOutputStream(buffer), false);
+        byte[] data = buffer.toByteArray();
+        assertTrue(data.length < logger.getLength() / 2);
+        copy = Logger.decode(new DataInputStream(new ByteArrayInputStream(data)));
+        assertEquals(logger.getOutput(), copy.getOutput());
+        copy.info("After");
+        assertTrue(copy.getOutput().endsWith("\nAfter"));
+
+        data[0] = 99;
+        assertThrows(IOException.class, () -> Logger.decode(new DataInputStream(new ByteArrayInputStream(data))));
+    }
+
+    @Test
+    void compressIncrementally() {
+        Logger logger = Logger.create();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            logger.info("line " + i);
+            expected.append("line ").append(i).append('\n');
+            if (i % 5000 == 0) logger.compress();
+        }
+        assertEquals(expected.toString().trim(), logger.getOutput());
+        logger.mark();
+        logger.warn("warning");
+        logger.unmark();
+        assertEquals(expected.toString().trim(), logger.getOutput());
+    }
 
     @Test
     void withAttach() {
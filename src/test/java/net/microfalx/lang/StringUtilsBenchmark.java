@@ -0,0 +1,38 @@
+package net.microfalx.lang;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringUtilsBenchmark {
+
+    private static final String NAME = "Daily Report - Europe/North (v2.1)";
+    private static final String LIST = "one, two, three, four, five, six, seven, eight, nine, ten";
+    private static final String TEXT = "The ${name} job processed ${count} items for ${name} in ${duration}";
+
+    @Benchmark
+    public String toIdentifier() {
+        return StringUtils.toIdentifier(NAME);
+    }
+
+    @Benchmark
+    public String[] split() {
+        return StringUtils.split(LIST, ",");
+    }
+
+    @Benchmark
+    public String replaceAll() {
+        return StringUtils.replaceAll(TEXT, "${name}", "backup");
+    }
+
+    @Benchmark
+    public String formatMessage() {
+        return StringUtils.formatMessage("The {0} job processed {1} items in {2} ms", "backup", 1245, 37.5);
+    }
+}
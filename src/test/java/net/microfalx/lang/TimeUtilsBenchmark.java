@@ -0,0 +1,30 @@
+package net.microfalx.lang;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.temporal.Temporal;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimeUtilsBenchmark {
+
+    @Benchmark
+    public Temporal parseDate() {
+        return TimeUtils.parseTemporal("2023-09-27");
+    }
+
+    @Benchmark
+    public Temporal parseTime() {
+        return TimeUtils.parseTemporal("17:12:30-02:00");
+    }
+
+    @Benchmark
+    public Temporal parseDateTime() {
+        return TimeUtils.parseTemporal("2023-09-27T17:12:30-02:00");
+    }
+}